@@ -2,6 +2,7 @@ plugins {
     id("java")
     alias(libs.plugins.shadow)
     alias(libs.plugins.conventions.java)
+    alias(libs.plugins.jmh)
 }
 
 repositories {
@@ -20,9 +21,23 @@ dependencies {
 
     testImplementation(libs.junit)
     testImplementation(libs.mockito)
+    testImplementation(libs.h2)
     testImplementation(libs.velocity.api)
     testRuntimeOnly(libs.junit.launcher)
     testRuntimeOnly(libs.junit.engine)
+
+    jmh(libs.velocity.api)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    benchmarkMode.add("thrpt")
+    timeUnit.set("s")
+    // Reports the allocation rate alongside the throughput of every benchmark.
+    profilers.add("gc")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
 }
 
 java.sourceCompatibility = JavaVersion.VERSION_21
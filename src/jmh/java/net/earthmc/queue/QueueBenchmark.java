@@ -0,0 +1,136 @@
+package net.earthmc.queue;
+
+import net.earthmc.queue.impl.local.IndexedSubQueue;
+import net.earthmc.queue.impl.local.LocalQueue;
+import net.earthmc.queue.impl.local.LocalSubQueue;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+@State(Scope.Thread)
+public class QueueBenchmark {
+    private static final int JOINING_PLAYERS = 1024;
+
+    @Param({"100", "1000", "10000"})
+    private int players;
+
+    @Param({"local", "indexed"})
+    private String type;
+
+    private final CountingAudience audience = new CountingAudience();
+    private Queue queue;
+    private SubQueue regular;
+    private QueuedPlayer[] joining;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final List<SubQueue> subQueues = new ArrayList<>();
+        subQueues.add(subQueue("regular", 0, 1));
+        subQueues.add(subQueue("priority", 1, 1));
+        subQueues.add(subQueue("premium", 5, 3));
+        Collections.sort(subQueues);
+
+        this.queue = new LocalQueue(subQueues);
+        this.regular = queue.getRegularQueue();
+
+        // Fill the regular queue with players of mixed weights, heaviest first like the queue itself would order them.
+        final Random random = new Random(0);
+        final Priority[] priorities = new Priority[4];
+        for (int weight = 0; weight < priorities.length; weight++)
+            priorities[weight] = new Priority("weight" + weight, weight, Component.empty());
+
+        final List<QueuedPlayer> queued = new ArrayList<>();
+        for (int i = 0; i < players; i++)
+            queued.add(new BenchmarkPlayer("player" + i, priorities[random.nextInt(priorities.length)], audience));
+
+        queued.sort((a, b) -> Integer.compare(b.priority().weight, a.priority().weight));
+        for (QueuedPlayer player : queued)
+            regular.addToTail(player);
+
+        // Players joining during the benchmark, some of them with a remembered position.
+        this.joining = new QueuedPlayer[JOINING_PLAYERS];
+        for (int i = 0; i < JOINING_PLAYERS; i++) {
+            joining[i] = new BenchmarkPlayer("joining" + i, priorities[random.nextInt(priorities.length)], audience);
+
+            if (random.nextInt(4) == 0)
+                queue.rememberPosition(joining[i].uuid(), random.nextInt(players));
+        }
+    }
+
+    private SubQueue subQueue(String name, int weight, int maxSends) {
+        return type.equals("indexed") ? new IndexedSubQueue(name, weight, maxSends) : new LocalSubQueue(name, weight, maxSends);
+    }
+
+    @Benchmark
+    public int addToQueue() {
+        cursor = cursor + 1 >= JOINING_PLAYERS ? 0 : cursor + 1;
+        final QueuedPlayer player = joining[cursor];
+
+        final int position = queue.addToQueue(player, regular);
+        regular.removePlayer(player);
+
+        return position;
+    }
+
+    @Benchmark
+    public long sendProgressMessages() {
+        // Progress messages are only sent every few seconds, reset that so that every invocation sends them.
+        regular.lastPositionMessageTime(Instant.EPOCH);
+        queue.sendProgressMessages(regular);
+
+        return audience.messages;
+    }
+
+    @Benchmark
+    public long sendProgressMessagesAfterSend() {
+        // Move everyone up by one position like a send would, so that only players whose position changed enough are notified.
+        regular.addToTail(regular.removeFirst());
+        regular.lastPositionMessageTime(Instant.EPOCH);
+        queue.sendProgressMessages(regular);
+
+        return audience.messages;
+    }
+
+    /**
+     * Counts the messages sent to it, so that building them can't be optimized away.
+     */
+    private static class CountingAudience implements Audience {
+        private long messages;
+
+        @Override
+        public void sendMessage(@NotNull Component message) {
+            messages++;
+        }
+    }
+
+    /**
+     * A queued player that sends its messages to a counting audience instead of looking up a player on the proxy.
+     */
+    private static class BenchmarkPlayer extends QueuedPlayer {
+        private final Audience audience;
+
+        BenchmarkPlayer(String name, Priority priority, Audience audience) {
+            super(UUID.randomUUID(), name, priority);
+            this.audience = audience;
+        }
+
+        @Override
+        public @NotNull Audience audience() {
+            return audience;
+        }
+    }
+}
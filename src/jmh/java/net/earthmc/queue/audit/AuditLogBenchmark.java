@@ -0,0 +1,60 @@
+package net.earthmc.queue.audit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.UUID;
+
+@State(Scope.Benchmark)
+public class AuditLogBenchmark {
+    private final UUID uuid = UUID.randomUUID();
+    private AuditLog log;
+    private int queue;
+    private int subQueue;
+    private volatile boolean draining;
+    private Thread drainer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.log = new AuditLog(65536, null, Long.MAX_VALUE, 0, null);
+        this.queue = AuditLog.id("towny");
+        this.subQueue = AuditLog.id("regular");
+
+        // Drain the buffer the same way the file sink does, without the file I/O.
+        this.draining = true;
+        this.drainer = new Thread(() -> {
+            while (draining) {
+                try {
+                    log.drainTo(Writer.nullWriter());
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        this.drainer.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        this.draining = false;
+        this.drainer.join();
+    }
+
+    @Benchmark
+    public void record() {
+        log.record(AuditEvent.ENQUEUE, uuid, queue, subQueue);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        log.record(AuditEvent.ENQUEUE, uuid, queue, subQueue);
+    }
+}
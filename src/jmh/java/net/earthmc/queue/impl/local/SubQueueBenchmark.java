@@ -0,0 +1,76 @@
+package net.earthmc.queue.impl.local;
+
+import net.earthmc.queue.Priority;
+import net.earthmc.queue.QueuedPlayer;
+import net.earthmc.queue.SubQueue;
+import net.kyori.adventure.text.Component;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.UUID;
+
+@State(Scope.Thread)
+public class SubQueueBenchmark {
+    private static final Priority NONE = new Priority("none", 0, Component.empty());
+
+    @Param({"100", "1000", "10000"})
+    private int players;
+
+    @Param({"local", "indexed"})
+    private String type;
+
+    private SubQueue subQueue;
+    private QueuedPlayer[] queued;
+    private QueuedPlayer extra;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.subQueue = type.equals("indexed") ? new IndexedSubQueue("regular", 0, 1) : new LocalSubQueue("regular", 0, 1);
+        this.queued = new QueuedPlayer[players];
+
+        for (int i = 0; i < players; i++) {
+            queued[i] = new QueuedPlayer(UUID.randomUUID(), "player" + i, NONE);
+            subQueue.addToTail(queued[i]);
+        }
+
+        this.extra = new QueuedPlayer(UUID.randomUUID(), "extra", NONE);
+    }
+
+    @Benchmark
+    public boolean addToTailAndRemove() {
+        subQueue.addToTail(extra);
+        return subQueue.removePlayer(extra);
+    }
+
+    @Benchmark
+    public boolean addToHeadAndRemove() {
+        subQueue.addToHead(extra);
+        return subQueue.removePlayer(extra);
+    }
+
+    @Benchmark
+    public boolean addAfterMiddleAndRemove() {
+        subQueue.addAfterPlayer(extra, queued[players / 2]);
+        return subQueue.removePlayer(extra);
+    }
+
+    @Benchmark
+    public int position() {
+        // Walk through all players so that positions near the head and the tail are both measured.
+        cursor = cursor + 1 >= players ? 0 : cursor + 1;
+        return subQueue.playerPosition(queued[cursor]);
+    }
+
+    @Benchmark
+    public QueuedPlayer removeFirstAndRequeue() {
+        // Keeps the sub queue at the same size, while the players in it rotate.
+        final QueuedPlayer first = subQueue.removeFirst();
+        subQueue.addToTail(first);
+        return first;
+    }
+}
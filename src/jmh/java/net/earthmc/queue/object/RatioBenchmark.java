@@ -0,0 +1,60 @@
+package net.earthmc.queue.object;
+
+import net.earthmc.queue.Priority;
+import net.earthmc.queue.QueuedPlayer;
+import net.earthmc.queue.SubQueue;
+import net.earthmc.queue.impl.local.LocalSubQueue;
+import net.kyori.adventure.text.Component;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+@State(Scope.Thread)
+public class RatioBenchmark {
+    private static final Predicate<SubQueue> NOT_EMPTY_PREDICATE = subQueue -> !subQueue.players().isEmpty();
+
+    private SubQueue regular;
+    private Ratio<SubQueue> ratio;
+    private SubQueueScheduler scheduler;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final SubQueue premium = new LocalSubQueue("premium", 5, 3);
+        final SubQueue priority = new LocalSubQueue("priority", 1, 1);
+        this.regular = new LocalSubQueue("regular", 0, 1);
+
+        // Leave priority empty, so that skipping empty sub queues is part of the measurement.
+        premium.addToTail(new QueuedPlayer(UUID.randomUUID(), "premium", new Priority("premium", 5, Component.empty())));
+        regular.addToTail(new QueuedPlayer(UUID.randomUUID(), "regular", new Priority("none", 0, Component.empty())));
+
+        final List<SubQueue> subQueues = List.of(premium, priority, regular);
+        this.ratio = new Ratio<>(subQueues);
+        this.scheduler = new SubQueueScheduler("bench", subQueues, regular);
+    }
+
+    @Benchmark
+    public SubQueue ratioNext() {
+        return ratio.next(false, NOT_EMPTY_PREDICATE, regular);
+    }
+
+    @Benchmark
+    public SubQueue ratioNextDry() {
+        return ratio.next(true, NOT_EMPTY_PREDICATE, regular);
+    }
+
+    @Benchmark
+    public SubQueue schedulerNext() {
+        return scheduler.next(false);
+    }
+
+    @Benchmark
+    public SubQueue schedulerNextDry() {
+        return scheduler.next(true);
+    }
+}
@@ -0,0 +1,30 @@
+package net.earthmc.queue;
+
+import net.kyori.adventure.text.Component;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Collects the messages sent to queued players during a tick, so that each player receives them as a single chat message instead of
+ * one packet per message. The plugin flushes the buffer once per tick.
+ */
+@NullMarked
+public class MessageBuffer {
+    // Players with buffered messages, each player is only in here once until their messages have been flushed.
+    private final ConcurrentLinkedQueue<QueuedPlayer> pending = new ConcurrentLinkedQueue<>();
+
+    public void add(QueuedPlayer player, Component message) {
+        if (player.bufferMessage(message))
+            pending.add(player);
+    }
+
+    /**
+     * Sends every player their buffered messages.
+     */
+    public void flush() {
+        QueuedPlayer player;
+        while ((player = pending.poll()) != null)
+            player.flushMessages();
+    }
+}
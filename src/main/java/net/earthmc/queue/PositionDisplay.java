@@ -0,0 +1,90 @@
+package net.earthmc.queue;
+
+import net.earthmc.queue.config.QueueConfig.DisplayMode;
+import net.earthmc.queue.object.MessageTemplate;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.bossbar.BossBar;
+import net.kyori.adventure.text.Component;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A queued player's live position display, shown as a boss bar or in the action bar.
+ * <p>
+ * The display remembers the values it last showed and only pushes an update to the player when they change, so refreshing the
+ * displays of players that haven't moved is nearly free. Each player keeps a single boss bar for as long as they're queued.
+ */
+@NullMarked
+public class PositionDisplay {
+    // The client fades out the action bar after a few seconds, so it has to be re-sent even if nothing changed.
+    private static final long ACTION_BAR_RESEND_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private @Nullable BossBar bossBar;
+    private DisplayMode shownMode = DisplayMode.NONE;
+    private int shownPosition = -1;
+    private int shownSize = -1;
+    private String shownEta = "";
+    private long lastSent;
+
+    /**
+     * Shows the player's current position, if it differs from what they are being shown.
+     *
+     * @param position The player's position in their sub queue, starting at 0.
+     * @param size The size of their sub queue.
+     * @param eta The formatted estimated time until the player is sent.
+     * @param template The message to display, with the position, size and eta placeholders.
+     */
+    public synchronized void update(Audience audience, DisplayMode mode, int position, int size, String eta, MessageTemplate template) {
+        if (mode != shownMode) {
+            hide(audience);
+            if (mode == DisplayMode.NONE)
+                return;
+        }
+
+        final long now = System.nanoTime();
+        final boolean changed = mode != shownMode || position != shownPosition || size != shownSize || !eta.equals(shownEta);
+        if (!changed && (mode == DisplayMode.BOSSBAR || now - lastSent < ACTION_BAR_RESEND_NANOS))
+            return;
+
+        final Component message = template.render(position + 1, size, eta);
+        if (mode == DisplayMode.BOSSBAR) {
+            final float progress = size <= 1 ? BossBar.MAX_PROGRESS : Math.max(BossBar.MIN_PROGRESS, 1f - (float) position / size);
+
+            if (bossBar == null) {
+                bossBar = BossBar.bossBar(message, progress, BossBar.Color.YELLOW, BossBar.Overlay.PROGRESS);
+                audience.showBossBar(bossBar);
+            } else {
+                // Boss bars push their own changes to the players viewing them.
+                bossBar.name(message);
+                bossBar.progress(progress);
+            }
+        } else {
+            audience.sendActionBar(message);
+        }
+
+        shownMode = mode;
+        shownPosition = position;
+        shownSize = size;
+        shownEta = eta;
+        lastSent = now;
+    }
+
+    /**
+     * Stops showing the display, for when the player leaves their queue.
+     */
+    public synchronized void hide(Audience audience) {
+        if (bossBar != null) {
+            audience.hideBossBar(bossBar);
+            bossBar = null;
+        } else if (shownMode == DisplayMode.ACTIONBAR) {
+            audience.sendActionBar(Component.empty());
+        }
+
+        shownMode = DisplayMode.NONE;
+        shownPosition = -1;
+        shownSize = -1;
+        shownEta = "";
+    }
+}
@@ -0,0 +1,164 @@
+package net.earthmc.queue;
+
+import net.earthmc.queue.config.QueueConfig.NotificationSettings;
+import org.jspecify.annotations.NullMarked;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of when the players in a sub queue are due their next progress message, so that a broadcast only has to look at the
+ * players that are due instead of every player in the sub queue.
+ * <p>
+ * Players move up one position for every player that leaves the head of the sub queue, so after being told their position a player
+ * is due again once enough players have left the head to cover the step or percentage they have to move. Players are also due once the
+ * minimum interval has passed since they were told. Players that move up because someone in front of them left from the middle of the
+ * queue are therefore told no later than the minimum interval, and players whose position went up because of an insert in front of them
+ * are checked again when they come up and rescheduled.
+ */
+@NullMarked
+public class ProgressSchedule {
+    // Broadcasts are numbered across all schedules, so that a player that moved between sub queues is never mistaken as already looked at.
+    private static final AtomicLong ROUNDS = new AtomicLong();
+
+    private final SubQueue subQueue;
+    // Players that were added to the sub queue and may not have been told their position yet.
+    private final ArrayDeque<QueuedPlayer> added = new ArrayDeque<>();
+    // Players by the amount of departures after which they have moved far enough, only used if it is still the player's progressDue.
+    private final Map<Long, List<QueuedPlayer>> byDepartures = new HashMap<>();
+    // Players in the order they were told their position, which is also the order of the times at which they were told.
+    private final ArrayDeque<Entry> byTime = new ArrayDeque<>();
+    // Players whose minimum interval has passed, but whose position hasn't changed since.
+    private final List<Entry> unchanged = new ArrayList<>();
+    private long departures;
+    // The amount of departures up to which players have been taken out of byDepartures.
+    private long polledDepartures;
+    // The number of the last broadcast.
+    private long round;
+
+    public ProgressSchedule(SubQueue subQueue) {
+        this.subQueue = subQueue;
+    }
+
+    /**
+     * Called by the sub queue when a player is added to it.
+     */
+    public void added(QueuedPlayer player) {
+        added.add(player);
+
+        // Players are usually told their position right away, drop those so that sub queues without broadcasts don't keep them all.
+        if (added.size() > 2 * subQueue.players().size() + 64)
+            added.removeIf(queued -> queued.lastNotifiedPosition() != -1 || !subQueue.hasPlayer(queued));
+    }
+
+    /**
+     * Called by the sub queue when the player at its head is removed, moving every other player up by one position.
+     */
+    public void departed() {
+        departures++;
+    }
+
+    /**
+     * Records that the player was told the given position.
+     */
+    public void notified(QueuedPlayer player, int position, Instant time, NotificationSettings settings) {
+        player.notifiedPosition(position, time);
+        byTime.add(new Entry(player, time));
+        schedule(player, position, settings);
+
+        // Entries of players that have been told again or have left are only dropped once they come up, so drop them here if there
+        // are a lot of them.
+        if (byTime.size() > 2 * subQueue.players().size() + 64)
+            byTime.removeIf(entry -> !entry.isCurrent() || !subQueue.hasPlayer(entry.player()));
+    }
+
+    /**
+     * Schedules a player that is due, but was not told their position because it hasn't changed enough.
+     */
+    public void reschedule(QueuedPlayer player, int position, Instant now, NotificationSettings settings) {
+        schedule(player, position, settings);
+
+        // The minimum interval has passed but the position hasn't changed, so they are due as soon as it does.
+        if (!player.lastNotifiedTime().plus(settings.minInterval()).isAfter(now))
+            unchanged.add(new Entry(player, player.lastNotifiedTime()));
+    }
+
+    /**
+     * Removes and returns the players that may be due a progress message. Players that are due and still in the sub queue have to be
+     * either {@link #notified} or {@link #reschedule rescheduled} to be considered again, players that have left can be ignored.
+     */
+    public List<QueuedPlayer> due(Instant now, NotificationSettings settings) {
+        final long round = this.round = ROUNDS.incrementAndGet();
+        final List<QueuedPlayer> due = new ArrayList<>();
+
+        QueuedPlayer player;
+        while ((player = added.poll()) != null) {
+            if (player.lastNotifiedPosition() == -1)
+                add(due, player, round);
+        }
+
+        for (; polledDepartures < departures; polledDepartures++) {
+            final long key = polledDepartures + 1;
+            final List<QueuedPlayer> players = byDepartures.remove(key);
+            if (players == null)
+                continue;
+
+            for (QueuedPlayer queued : players) {
+                if (queued.progressDue == key)
+                    add(due, queued, round);
+            }
+        }
+
+        while (!byTime.isEmpty() && !byTime.peek().notifiedAt().plus(settings.minInterval()).isAfter(now)) {
+            final Entry entry = byTime.poll();
+            if (entry.isCurrent())
+                add(due, entry.player(), round);
+        }
+
+        for (Entry entry : unchanged) {
+            if (entry.isCurrent())
+                add(due, entry.player(), round);
+        }
+        unchanged.clear();
+
+        return due;
+    }
+
+    /**
+     * @return Whether the player was returned by the last call to {@link #due}.
+     */
+    public boolean isDue(QueuedPlayer player) {
+        return player.progressRound == round;
+    }
+
+    private static void add(List<QueuedPlayer> due, QueuedPlayer player, long round) {
+        if (player.progressRound != round) {
+            player.progressRound = round;
+            due.add(player);
+        }
+    }
+
+    private void schedule(QueuedPlayer player, int position, NotificationSettings settings) {
+        final int lastPosition = player.lastNotifiedPosition();
+        // The amount of positions the player has to move up from their last position to be told again.
+        final int step = Math.max(1, Math.min(settings.positionStep(), (int) Math.ceilDiv((long) settings.positionPercent() * lastPosition, 100L)));
+        final long key = departures + Math.max(1, position - (lastPosition - step));
+
+        player.progressDue = key;
+        byDepartures.computeIfAbsent(key, k -> new ArrayList<>()).add(player);
+    }
+
+    private record Entry(QueuedPlayer player, Instant notifiedAt) {
+        /**
+         * @return Whether the entry is from the last time the player was told their position.
+         */
+        boolean isCurrent() {
+            return notifiedAt.equals(player.lastNotifiedTime());
+        }
+    }
+}
@@ -1,45 +1,88 @@
 package net.earthmc.queue;
 
 import com.google.common.collect.Iterables;
+import com.velocitypowered.api.proxy.ConnectionRequestBuilder;
 import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
-import net.earthmc.queue.object.Ratio;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import net.earthmc.queue.audit.AuditEvent;
+import net.earthmc.queue.audit.AuditLog;
+import net.earthmc.queue.config.Messages;
+import net.earthmc.queue.config.QueueConfig.DisplayMode;
+import net.earthmc.queue.config.QueueConfig.NotificationSettings;
+import net.earthmc.queue.jfr.EnqueueEvent;
+import net.earthmc.queue.jfr.ProgressBroadcastEvent;
+import net.earthmc.queue.jfr.RemoveEvent;
+import net.earthmc.queue.jfr.SendAttemptEvent;
+import net.earthmc.queue.jfr.SendResultEvent;
+import net.earthmc.queue.metrics.MetricsRegistry;
+import net.earthmc.queue.metrics.QueueMetrics;
+import net.earthmc.queue.object.Mailbox;
+import net.earthmc.queue.object.MessageTemplate;
+import net.earthmc.queue.object.RateController;
+import net.earthmc.queue.object.SubQueueScheduler;
+import net.earthmc.queue.object.ThroughputEstimator;
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.format.NamedTextColor;
-import net.kyori.adventure.text.format.Style;
-import net.kyori.adventure.text.format.TextDecoration;
 import org.jetbrains.annotations.VisibleForTesting;
 import org.jspecify.annotations.Nullable;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Deque;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.UUID;
 import java.util.Vector;
-import java.util.function.Predicate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * Represents a queue for a server.
+ * <p>
+ * All state of a queue and its sub queues is owned by the queue's {@link Mailbox}. Enqueueing, removing, sending and re-queueing players
+ * are all submitted to it and run one at a time, while other threads can read the latest {@link #snapshot()} without locking.
  */
 public abstract class Queue {
-    private static final Duration TIME_BETWEEN_SENDS = Duration.ofMillis(500);
-    private static final Predicate<SubQueue> NOT_EMPTY_PREDICATE = subQueue -> !subQueue.players().isEmpty();
+    private static final Duration DEFAULT_SEND_INTERVAL = Duration.ofMillis(500);
+    private static final NotificationSettings DEFAULT_NOTIFICATION_SETTINGS = new NotificationSettings(10, 5, Duration.ofSeconds(30), false, true);
 
     private final QueuePlugin plugin;
     private final List<SubQueue> subQueues;
     private final SubQueue regularQueue;
-    private final Ratio<SubQueue> subQueueRatio;
+    private final SubQueueScheduler scheduler;
+    private final ThroughputEstimator throughput;
+    private final QueueMetrics metrics;
+    private final int auditId;
     private final RegisteredServer server;
     private final String formattedName;
     private final String name;
 
-    private int maxPlayers;
+    private final Mailbox mailbox;
+    private final RateController rateController;
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+
+    private volatile int maxPlayers;
+    // The amount of players on the target server, maintained by the plugin from connect and disconnect events.
+    private final AtomicInteger connectedPlayers = new AtomicInteger();
+    // Players that have been pointed at the target server as their initial server, but haven't connected to it yet.
+    private final AtomicInteger pendingConnects = new AtomicInteger();
+    // The amount of players in all sub queues, only written from within the mailbox.
+    private volatile int queuedCount;
+    private volatile QueueSnapshot snapshot = QueueSnapshot.EMPTY;
+    private volatile @Nullable BoundMessages boundMessages;
     private Instant lastSendTime = Instant.EPOCH;
     private int failedAttempts;
+    private int inFlight;
+    private @Nullable ScheduledTask scheduledWakeup;
+    private Instant scheduledWakeupTime = Instant.MAX;
 
     public Queue(RegisteredServer server, QueuePlugin plugin, List<SubQueue> subQueues) {
         this.server = server;
@@ -50,10 +93,17 @@ public abstract class Queue {
 
         this.formattedName = name.substring(0, 1).toUpperCase(Locale.ROOT) + name.substring(1);
 
+        this.mailbox = new Mailbox(task -> plugin.proxy().getScheduler().buildTask(plugin, task).schedule(),
+                throwable -> plugin.logger().error("An exception occurred while processing the queue for {}", formattedName, throwable));
+        this.rateController = new RateController(plugin.config().sendSettings().maxInFlight(), plugin.config().sendSettings().latencyTolerance());
+
         refreshMaxPlayers();
         this.subQueues = subQueues;
-        this.subQueueRatio = new Ratio<>(this.subQueues);
         this.regularQueue = Iterables.getLast(this.subQueues);
+        this.scheduler = new SubQueueScheduler(this.formattedName, this.subQueues, this.regularQueue);
+        this.throughput = new ThroughputEstimator(this.subQueues);
+        this.metrics = new QueueMetrics(plugin.metrics(), this, this.name);
+        this.auditId = AuditLog.id(this.name);
     }
 
     @VisibleForTesting
@@ -64,23 +114,183 @@ public abstract class Queue {
         this.formattedName = "TestQueue";
         this.name = "testqueue";
 
+        // Run tasks on the calling thread so that tests can observe their effects right away.
+        this.mailbox = new Mailbox(Runnable::run, throwable -> {
+            throw new IllegalStateException(throwable);
+        });
+        this.rateController = new RateController(1, 2);
+
         this.subQueues = subQueues;
-        this.subQueueRatio = new Ratio<>(this.subQueues);
         this.regularQueue = Iterables.getLast(this.subQueues);
+        this.scheduler = new SubQueueScheduler(this.formattedName, this.subQueues, this.regularQueue);
+        this.throughput = new ThroughputEstimator(this.subQueues);
+        this.metrics = new QueueMetrics(new MetricsRegistry(), this, this.name);
+        this.auditId = AuditLog.id(this.name);
     }
 
     public void refreshMaxPlayers() {
-        server.ping().thenAccept(ping -> ping.getPlayers().ifPresent(players -> this.maxPlayers = players.getMax()));
+        // Correct any drift in the event maintained player count.
+        this.connectedPlayers.set(server.getPlayersConnected().size());
+
+        server.ping().thenAccept(ping -> ping.getPlayers().ifPresent(players -> {
+            this.maxPlayers = players.getMax();
+
+            // Wake up any queue with players, in case it missed a slot freeing up or the server raised its player limit.
+            if (queuedCount > 0)
+                wakeup();
+        }));
+    }
+
+    /**
+     * Called when a player has connected to this queue's server.
+     */
+    public void playerConnected() {
+        connectedPlayers.incrementAndGet();
+    }
+
+    /**
+     * Called when a player has left this queue's server, wakes the queue up as a slot has freed up.
+     */
+    public void playerDisconnected() {
+        connectedPlayers.updateAndGet(count -> Math.max(0, count - 1));
+        wakeup();
+    }
+
+    public void addPendingConnect() {
+        pendingConnects.incrementAndGet();
+    }
+
+    public void removePendingConnect() {
+        pendingConnects.updateAndGet(count -> Math.max(0, count - 1));
     }
 
-    public void sendNext() {
-        if (!canSend())
+    /**
+     * @return The amount of players on this queue's server, including players that are about to join it as their initial server.
+     */
+    public int occupancy() {
+        return connectedPlayers.get() + pendingConnects.get();
+    }
+
+    /**
+     * @return The amount of players in this queue, without having to walk its sub queues.
+     */
+    public int queuedCount() {
+        return queuedCount;
+    }
+
+    /**
+     * Wakes this queue up so that it sends the next player if it can, used when a slot on the target server may have freed up.
+     * Wakeups that arrive while one is already pending are merged into it.
+     */
+    public void wakeup() {
+        if (wakeupPending.compareAndSet(false, true)) {
+            execute(() -> {
+                wakeupPending.set(false);
+                dispatch();
+            });
+        }
+    }
+
+    /**
+     * Submits a task to this queue's mailbox, it will run after all previously submitted tasks.
+     */
+    public void execute(Runnable task) {
+        mailbox.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                publishSnapshot();
+            }
+        });
+    }
+
+    /**
+     * Reads state of this queue from within its mailbox, use this for reads that {@link #snapshot()} doesn't cover.
+     *
+     * @return A future completed with the result of the reader once all previously submitted tasks have run.
+     */
+    public <T> CompletableFuture<T> query(Supplier<T> reader) {
+        return mailbox.submit(reader);
+    }
+
+    /**
+     * @return The sizes of this queue as of the last task that ran in its mailbox.
+     */
+    public QueueSnapshot snapshot() {
+        return this.snapshot;
+    }
+
+    private void publishSnapshot() {
+        final Map<String, Integer> sizes = new LinkedHashMap<>();
+        int players = 0;
+
+        for (SubQueue subQueue : this.subQueues) {
+            final int size = subQueue.players().size();
+            sizes.put(subQueue.name(), size);
+            players += size;
+        }
+
+        this.snapshot = new QueueSnapshot(Collections.unmodifiableMap(sizes), players, inFlight);
+    }
+
+    /**
+     * Sends as many players as the in flight window allows, and schedules the next attempt for when this queue is allowed to send again.
+     * If the target server is full, nothing is scheduled and the queue waits for a player to leave the server to wake it up.
+     */
+    private void dispatch() {
+        if (canSend() && !lastSendTime.plus(sendInterval()).isAfter(Instant.now())) {
+            rateController.maxWindow(maxInFlight());
+            final int window = rateController.window();
+            while (inFlight < window && canSend())
+                sendNextNow();
+        }
+
+        if (!hasPlayers())
             return;
 
+        if (paused()) {
+            if (!unpauseTime().equals(Instant.MAX))
+                scheduleWakeup(unpauseTime());
+        } else if (hasCapacity() && inFlight < rateController.window()) {
+            scheduleWakeup(lastSendTime.plus(sendInterval()));
+        }
+        // Otherwise, the next send is triggered by a player leaving the server or an in flight send completing.
+    }
+
+    private void scheduleWakeup(final Instant time) {
+        if (plugin == null || !scheduledWakeupTime.isAfter(time))
+            return; // Either running without a proxy, or an earlier wakeup is already scheduled.
+
+        if (scheduledWakeup != null)
+            scheduledWakeup.cancel();
+
+        final long delay = Math.max(0, Duration.between(Instant.now(), time).toMillis());
+        this.scheduledWakeupTime = time;
+        this.scheduledWakeup = plugin.proxy().getScheduler().buildTask(plugin, () -> execute(() -> {
+            // Only clear the wakeup if it hasn't been replaced by an earlier one.
+            if (scheduledWakeupTime.equals(time)) {
+                scheduledWakeup = null;
+                scheduledWakeupTime = Instant.MAX;
+            }
+
+            dispatch();
+        })).delay(delay, TimeUnit.MILLISECONDS).schedule();
+    }
+
+    private Duration sendInterval() {
+        return plugin == null ? DEFAULT_SEND_INTERVAL : plugin.config().sendSettings().minSendInterval();
+    }
+
+    private int maxInFlight() {
+        return plugin == null ? 1 : plugin.config().sendSettings().maxInFlight();
+    }
+
+    private void sendNextNow() {
         if (failedAttempts >= 5) {
             pause(Instant.now().plusSeconds(30));
+            final Component message = messages().pausedAfterFailures().render();
             for (QueuedPlayer player : allPlayers()) {
-                player.sendMessage(Component.text("Queue is paused for 30 seconds as the target server refused the last 5 players.", NamedTextColor.RED));
+                player.sendMessage(message);
             }
 
             return;
@@ -89,7 +299,13 @@ public abstract class Queue {
         // Gets the queue to send the next player from.
         SubQueue queue = getNextSubQueue(false);
         QueuedPlayer toSend = queue.removeFirst();
-        toSend.queue(null);
+        queuedCount--;
+        if (toSend.clearQueue(this)) {
+            toSend.clearNotifiedPosition();
+            toSend.display().hide(toSend);
+        }
+        final long waited = System.nanoTime() - toSend.enqueuedAt();
+        metrics.waitTime().recordNanos(waited);
         rememberPosition(toSend.uuid(), 0);
         Player player = toSend.player();
 
@@ -101,36 +317,79 @@ public abstract class Queue {
         if (player.getCurrentServer().map(server -> server.getServerInfo().getName()).orElse("unknown").equalsIgnoreCase(this.name))
             return;
 
-        player.sendMessage(Component.text("You are being sent to " + formattedName + "...", NamedTextColor.GREEN));
-        QueuePlugin.debug("Sending " + player.getUsername() + " to " + formattedName + " via the " + queue.name()+ " queue.");
-
-        player.createConnectionRequest(server).connect().thenAccept(result -> {
-            if (result.isSuccessful()) {
-                player.sendMessage(Component.text("You have been sent to " + formattedName + ".", NamedTextColor.GREEN));
-                failedAttempts = 0;
-                sendProgressMessages(queue);
+        // Messages go through the queued player, so that they are buffered with any other messages sent in the same tick.
+        final Messages messages = messages();
+        toSend.sendMessage(messages.sending().render());
+        if (QueuePlugin.isDebug())
+            QueuePlugin.debug("Sending " + player.getUsername() + " to " + formattedName + " via the " + queue.name() + " queue.");
+        audit(AuditEvent.SEND, toSend.uuid(), queue);
+
+        SendAttemptEvent.emit(formattedName, queue.name(), player.getUsername(), waited, inFlight, rateController.window());
+
+        // The send counts against the server's capacity until it completes.
+        inFlight++;
+        final long connectStart = System.nanoTime();
+        final SendResultEvent sendEvent = SendResultEvent.start();
+        player.createConnectionRequest(server).connect().whenComplete((result, e) -> {
+            final Duration latency = Duration.ofNanos(System.nanoTime() - connectStart);
+            metrics.connectLatency().record(latency);
+            if (sendEvent != null)
+                sendEvent.finish(formattedName, queue.name(), player.getUsername(), e != null ? "EXCEPTION" : result.getStatus().name(), e == null && result.isSuccessful());
+
+            if (e != null) {
+                metrics.connectFailures(null).increment();
+                audit(AuditEvent.SEND_FAILED, toSend.uuid(), queue);
+                plugin.logger().error("An exception occurred while trying to send {} to {}", player.getUsername(), formattedName, e);
+                toSend.sendMessage(messages.sendFailed().render());
+                toSend.sendMessage(messages.requeueing().render());
+            } else if (result.isSuccessful()) {
+                metrics.sends().increment();
+                audit(AuditEvent.SENT, toSend.uuid(), queue);
+                toSend.sendMessage(messages.sent().render());
                 plugin.logger().info("{} has been sent to {} via queue.", player.getUsername(), formattedName);
             } else {
-                player.sendMessage(Component.text("Unable to connect you to " + formattedName + ".", NamedTextColor.RED));
+                metrics.connectFailures(result.getStatus()).increment();
+                audit(AuditEvent.SEND_FAILED, toSend.uuid(), queue);
+                toSend.sendMessage(messages.sendFailed().render());
 
                 Component reason = switch (result.getStatus()) {
-                    case CONNECTION_IN_PROGRESS -> Component.text("You are already being connected to this server!", NamedTextColor.RED);
-                    case SERVER_DISCONNECTED -> result.getReasonComponent().isPresent() ? result.getReasonComponent().get() : Component.text("The target server has refused your connection.", NamedTextColor.RED);
-                    case ALREADY_CONNECTED -> Component.text("You are already connected to this server!", NamedTextColor.RED);
-                    case CONNECTION_CANCELLED -> Component.text("Your connection has been cancelled unexpectedly.", NamedTextColor.RED);
-                    default -> Component.text("", NamedTextColor.RED);
+                    case CONNECTION_IN_PROGRESS -> messages.reasonInProgress().render();
+                    case SERVER_DISCONNECTED -> result.getReasonComponent().isPresent() ? result.getReasonComponent().get() : messages.reasonRefused().render();
+                    case ALREADY_CONNECTED -> messages.reasonAlreadyConnected().render();
+                    case CONNECTION_CANCELLED -> messages.reasonCancelled().render();
+                    default -> Component.empty();
                 };
 
-                player.sendMessage(Component.text("Reason: ", reason.colorIfAbsent(NamedTextColor.RED).color()).append(reason));
+                toSend.sendMessage(messages.sendFailedReason().render(reason));
             }
-        }).exceptionally(e -> {
-            plugin.logger().error("An exception occurred while trying to send {} to {}", player.getUsername(), formattedName, e);
-            player.sendMessage(Component.text("Unable to connect you to " + formattedName + ".", NamedTextColor.RED));
-            player.sendMessage(Component.text("Attempting to re-queue you...", NamedTextColor.RED));
-            toSend.queue(this);
-            queue.addToHead(toSend);
-            failedAttempts++;
-            return null;
+
+            execute(() -> {
+                inFlight--;
+
+                if (e != null) {
+                    failedAttempts++;
+                    rateController.onFailure();
+
+                    // Don't re-queue the player if they've joined another queue in the meantime.
+                    if (toSend.queue() == null && !queue.hasPlayer(toSend)) {
+                        queue.addToHead(toSend);
+                        queuedCount++;
+                        toSend.queue(this);
+                    }
+                } else if (result.isSuccessful()) {
+                    failedAttempts = 0;
+                    rateController.onSuccess(latency);
+                    throughput.onSend(queue, System.nanoTime());
+                    sendProgressMessages(queue);
+                } else if (result.getStatus() == ConnectionRequestBuilder.Status.SERVER_DISCONNECTED) {
+                    // The other statuses are caused by the player or the proxy, not by the target server.
+                    failedAttempts++;
+                    rateController.onFailure();
+                }
+
+                // A slot in the in flight window has been released.
+                dispatch();
+            });
         });
 
         lastSendTime = Instant.now();
@@ -141,56 +400,177 @@ public abstract class Queue {
         if (paused && unpauseTime().isBefore(Instant.now())) {
             unpause();
             failedAttempts = 0;
+            // The server has likely restarted while the queue was paused, so start over with a small window.
+            rateController.reset();
+            throughput.restart();
             paused = false;
         }
 
         return !paused
-                && lastSendTime.plus(TIME_BETWEEN_SENDS).isBefore(Instant.now())
-                && server.getPlayersConnected().size() < maxPlayers
+                && hasCapacity()
                 && hasPlayers()
                 && !getNextSubQueue(true).players().isEmpty();
     }
 
+    /**
+     * @return Whether the target server has room for another player, counting players that are still being sent.
+     */
+    private boolean hasCapacity() {
+        return occupancy() + inFlight < maxPlayers;
+    }
+
+    /**
+     * Sends players in the given sub queue their new position, but only if it has changed enough since they were last told their position.
+     * Only the players that the sub queue's {@link ProgressSchedule} considers due are looked at. Positions are remembered when players
+     * leave the queue, so they don't have to be remembered here.
+     */
     public void sendProgressMessages(SubQueue queue) {
-        if (queue.lastPositionMessageTime().plusSeconds(3).isAfter(Instant.now()))
+        final Instant now = Instant.now();
+        if (queue.lastPositionMessageTime().plusSeconds(3).isAfter(now))
             return;
 
-        queue.lastPositionMessageTime(Instant.now());
+        final NotificationSettings settings = notificationSettings();
+        if (!settings.progressMessages())
+            return;
+
+        queue.lastPositionMessageTime(now);
         final boolean paused = this.paused();
+        final Messages messages = messages();
+        final ProgressBroadcastEvent event = new ProgressBroadcastEvent();
+        event.begin();
+
+        int notified = 0;
+        final Collection<QueuedPlayer> players = queue.players();
+        final int size = players.size();
+        final ProgressSchedule schedule = queue.progress();
+        final List<QueuedPlayer> due = schedule.due(now, settings);
+
+        if (due.size() * 8 < size) {
+            for (QueuedPlayer player : due) {
+                final int position = queue.playerPosition(player);
+                if (position != -1 && notifyProgress(queue, player, position, size, now, settings, messages, paused))
+                    notified++;
+            }
+        } else {
+            // Looking up the positions of this many players one by one costs more than walking the sub queue once.
+            int index = 0;
+            for (QueuedPlayer player : players) {
+                if (schedule.isDue(player) && notifyProgress(queue, player, index, size, now, settings, messages, paused))
+                    notified++;
+
+                index++;
+            }
+        }
 
-        int index = 0;
-        final Deque<QueuedPlayer> players = queue.players();
-        for (QueuedPlayer player : players) {
-            rememberPosition(player.uuid(), index);
+        event.finish(formattedName, queue.name(), size, notified);
+    }
 
-            player.sendMessage(Component.text("You are currently in position ", NamedTextColor.YELLOW).append(Component.text(index + 1, NamedTextColor.GREEN).append(Component.text(" of ", NamedTextColor.YELLOW).append(Component.text(players.size(), NamedTextColor.GREEN).append(Component.text(" for " + formattedName + ".", NamedTextColor.YELLOW))))));
+    /**
+     * Sends a player that the progress schedule considers due their position if it has changed enough, or reschedules them otherwise.
+     *
+     * @return Whether the player was sent their position.
+     */
+    private boolean notifyProgress(SubQueue queue, QueuedPlayer player, int position, int size, Instant now, NotificationSettings settings, Messages messages, boolean paused) {
+        if (!shouldNotify(player, position, now, settings)) {
+            queue.progress().reschedule(player, position, now, settings);
+            return false;
+        }
 
-            if (paused) {
-                sendPausedQueueMessage(player);
-            }
+        queue.progress().notified(player, position, now, settings);
+        player.sendMessage(messages.position().render(position + 1, size, Messages.formatEta(eta(queue, position))));
 
-            index++;
+        if (paused) {
+            sendPausedQueueMessage(player);
         }
+
+        return true;
+    }
+
+    /**
+     * Refreshes the live position display of every player in this queue, players are only sent an update if their position has changed.
+     */
+    public void refreshDisplays(DisplayMode mode) {
+        final MessageTemplate template = messages().display();
+
+        for (SubQueue subQueue : subQueues) {
+            final Collection<QueuedPlayer> players = subQueue.players();
+            final int size = players.size();
+
+            int index = 0;
+            for (QueuedPlayer player : players) {
+                player.display().update(player, mode, index, size, Messages.formatEta(eta(subQueue, index)), template);
+                index++;
+            }
+        }
+    }
+
+    private static boolean shouldNotify(QueuedPlayer player, int position, Instant now, NotificationSettings settings) {
+        final int lastPosition = player.lastNotifiedPosition();
+        if (lastPosition == -1)
+            return true;
+
+        if (position == lastPosition)
+            return false;
+
+        final int moved = Math.abs(lastPosition - position);
+        return moved >= settings.positionStep()
+                || moved * 100L >= (long) settings.positionPercent() * lastPosition
+                || !player.lastNotifiedTime().plus(settings.minInterval()).isAfter(now);
+    }
+
+    /**
+     * Records that a player in the given sub queue was just told their position, outside of the progress messages.
+     */
+    public void notifiedPosition(SubQueue subQueue, QueuedPlayer player, int position) {
+        subQueue.progress().notified(player, position, Instant.now(), notificationSettings());
+    }
+
+    private NotificationSettings notificationSettings() {
+        return plugin == null ? DEFAULT_NOTIFICATION_SETTINGS : plugin.config().notificationSettings();
     }
 
     public void enqueue(QueuedPlayer player) {
+        execute(() -> enqueueNow(player));
+    }
+
+    private void enqueueNow(QueuedPlayer player) {
+        final Messages messages = messages();
+        if (hasPlayer(player)) {
+            player.queue(this);
+            player.sendMessage(messages.alreadyQueued().render());
+            return;
+        }
+
         if (player.queue() != null) {
             if (player.queue().equals(this)) {
-                player.sendMessage(Component.text("You are already queued for this server.", NamedTextColor.RED));
+                player.sendMessage(messages.alreadyQueued().render());
                 return;
             } else {
-                player.sendMessage(Component.text("You have been removed from the queue for " + player.queue().getServerFormatted() + ".", NamedTextColor.RED));
+                player.sendMessage(player.queue().messages().removedForOtherQueue().render());
                 plugin.logger().info("{} has been removed from the queue, because they joined the queue for another.", player.name());
                 player.queue().remove(player);
             }
         }
 
+        final boolean wasEmpty = !hasPlayers();
+        if (wasEmpty) {
+            // Time spent without players to send isn't part of the send rate.
+            throughput.restart();
+        }
+
         SubQueue subQueue = getSubQueue(player);
-        player.queue(this);
         final int position = addToQueue(player, subQueue);
+        EnqueueEvent.emit(formattedName, subQueue.name(), player.name(), position);
+        audit(AuditEvent.ENQUEUE, player.uuid(), subQueue);
+        queuedCount++;
+        metrics.enqueues().increment();
+        player.enqueuedAt(System.nanoTime());
+        // Only point the player at this queue once they're part of it, so that isInQueue never sees this queue without the player in it.
+        player.queue(this);
 
-        player.sendMessage(Component.text("You have joined the queue for " + formattedName + ".", NamedTextColor.GREEN));
-        player.sendMessage(Component.text("You are currently in position ", NamedTextColor.YELLOW).append(Component.text(position + 1, NamedTextColor.GREEN).append(Component.text(" of ", NamedTextColor.YELLOW).append(Component.text(subQueue.players().size(), NamedTextColor.GREEN)).append(Component.text(".", NamedTextColor.YELLOW)))));
+        player.sendMessage(messages.joined().render());
+        player.sendMessage(messages.joinedPosition().render(position + 1, subQueue.players().size(), Messages.formatEta(eta(subQueue, position))));
+        notifiedPosition(subQueue, player, position);
 
         if (!player.priority().message().equals(Component.empty()))
             player.sendMessage(player.priority().message());
@@ -198,6 +578,10 @@ public abstract class Queue {
         if (paused()) {
             sendPausedQueueMessage(player);
         }
+
+        // Queues with players already have their next send scheduled, an empty queue has to be woken up.
+        if (wasEmpty)
+            dispatch();
     }
 
     /**
@@ -207,11 +591,12 @@ public abstract class Queue {
      * @param subQueue The sub queue to add the player to.
      * @return The player's position within the sub queue
      */
-    private int addToQueue(QueuedPlayer player, SubQueue subQueue) {
+    @VisibleForTesting
+    int addToQueue(QueuedPlayer player, SubQueue subQueue) {
         final int size = subQueue.players().size();
         if (size == 0) {
             subQueue.addToTail(player);
-            return 1;
+            return 0;
         }
 
         final OptionalInt rememberedPosition = getRememberedPosition(player.uuid());
@@ -220,7 +605,7 @@ public abstract class Queue {
         if (weight == 0 && rememberedPosition.isEmpty()) {
             // no remembered position and no weight, add to the end of the queue
             subQueue.addToTail(player);
-            return size + 1;
+            return size;
         }
 
         if (rememberedPosition.isPresent() && rememberedPosition.getAsInt() <= 0) {
@@ -228,34 +613,32 @@ public abstract class Queue {
             return 0;
         }
 
-        final Iterator<QueuedPlayer> playerIterator = subQueue.players().iterator();
-        final int direction = 1;
-        int position = 0;
-
-        QueuedPlayer prev = null;
-        while (playerIterator.hasNext()) {
-            final QueuedPlayer next = playerIterator.next();
-
-            if (weight > next.priority().weight || (rememberedPosition.isPresent() && position >= rememberedPosition.getAsInt())) {
-                if (prev == null) {
-                    subQueue.addToHead(player);
-                    return 0;
-                } else {
-                    subQueue.addAfterPlayer(player, prev);
-                    return position;
-                }
-            }
+        // Insert the player in front of the first player with a lower weight, or at their remembered position if that comes first.
+        return subQueue.addByWeight(player, weight, rememberedPosition.orElse(size));
+    }
 
-            prev = next;
-            position += direction;
-        }
+    public void remove(QueuedPlayer player) {
+        execute(() -> removeNow(player));
+    }
 
-        subQueue.addToTail(player);
-        return size + 1;
+    /**
+     * Lets the sub queue the player is in know that their priority may have changed.
+     */
+    public void priorityChanged(QueuedPlayer player) {
+        execute(() -> {
+            for (SubQueue subQueue : this.subQueues) {
+                if (subQueue.hasPlayer(player))
+                    subQueue.priorityChanged(player);
+            }
+        });
     }
 
-    public void remove(QueuedPlayer player) {
-        player.queue(null);
+    private void removeNow(QueuedPlayer player) {
+        // The player may have joined another queue already, which then owns their notified position and display.
+        if (player.clearQueue(this)) {
+            player.clearNotifiedPosition();
+            player.display().hide(player);
+        }
 
         for (SubQueue subQueue : this.subQueues) {
             if (subQueue.hasPlayer(player)) {
@@ -263,6 +646,10 @@ public abstract class Queue {
                 if (position != -1) {
                     rememberPosition(player.uuid(), position);
                     subQueue.removePlayer(player);
+                    queuedCount--;
+                    metrics.leaves().increment();
+                    RemoveEvent.emit(formattedName, subQueue.name(), player.name(), position, System.nanoTime() - player.enqueuedAt());
+                    audit(AuditEvent.LEAVE, player.uuid(), subQueue);
                     break;
                 }
             }
@@ -290,7 +677,7 @@ public abstract class Queue {
      * @return The queue to send the next player from.
      */
     public SubQueue getNextSubQueue(boolean dry) {
-        return this.subQueueRatio.next(dry, NOT_EMPTY_PREDICATE, regularQueue);
+        return this.scheduler.next(dry);
     }
 
     public SubQueue getSubQueue(QueuedPlayer player) {
@@ -310,14 +697,44 @@ public abstract class Queue {
         return formattedName;
     }
 
+    /**
+     * Adds a record to the audit log, if it is enabled.
+     *
+     * @param subQueue The sub queue the record is about, or null if it is about the whole queue.
+     */
+    protected void audit(AuditEvent type, @Nullable UUID uuid, @Nullable SubQueue subQueue) {
+        final AuditLog auditLog = plugin == null ? null : plugin.auditLog();
+        if (auditLog != null)
+            auditLog.record(type, uuid, auditId, subQueue == null ? -1 : AuditLog.id(subQueue.name()));
+    }
+
     public void sendPausedQueueMessage(final QueuedPlayer player) {
-        player.sendMessage(Component.text("The queue you are currently in is paused.", NamedTextColor.GRAY));
+        final Messages messages = messages();
+        player.sendMessage(messages.paused().render());
 
         final String reason = pauseReason();
         if (reason != null)
-            player.sendMessage(Component.text("Reason: ", NamedTextColor.GRAY).append(Component.text(reason, Style.style(TextDecoration.ITALIC))));
+            player.sendMessage(messages.pausedReason().render(reason));
+    }
+
+    /**
+     * @return The configured messages, with this queue's server already filled in.
+     */
+    public Messages messages() {
+        final Messages source = plugin == null ? Messages.defaults() : plugin.config().messages();
+
+        BoundMessages bound = this.boundMessages;
+        if (bound == null || bound.source() != source) {
+            // The config has been (re)loaded since the messages were last bound.
+            bound = new BoundMessages(source, source.bind(formattedName));
+            this.boundMessages = bound;
+        }
+
+        return bound.messages();
     }
 
+    private record BoundMessages(Messages source, Messages messages) {}
+
     public Vector<QueuedPlayer> allPlayers() {
         Vector<QueuedPlayer> allPlayers = new Vector<>();
         for (SubQueue subQueue : subQueues)
@@ -326,12 +743,52 @@ public abstract class Queue {
         return allPlayers;
     }
 
+    public List<SubQueue> getSubQueues() {
+        return this.subQueues;
+    }
+
     public SubQueue getRegularQueue() {
         return this.regularQueue;
     }
 
-    public Ratio<SubQueue> getSubQueueRatio() {
-        return subQueueRatio;
+    public SubQueueScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @return The amount of players that are currently being sent to the server, only accurate from within the mailbox.
+     */
+    public int inFlight() {
+        return inFlight;
+    }
+
+    public int failedAttempts() {
+        return failedAttempts;
+    }
+
+    /**
+     * @return The estimated time until a player at the given position in a sub queue is sent, or an empty optional if unknown.
+     */
+    public Optional<Duration> eta(SubQueue subQueue, int position) {
+        return throughput.estimate(subQueue, position);
+    }
+
+    /**
+     * @return This queue's send rate estimator, which may only be used from within the mailbox.
+     */
+    public ThroughputEstimator throughput() {
+        return throughput;
+    }
+
+    public QueueMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * @return This queue's send rate controller, which may only be used from within the mailbox.
+     */
+    public RateController rateController() {
+        return rateController;
     }
 
     public int maxPlayers() {
@@ -6,10 +6,12 @@ import com.google.inject.Inject;
 import com.velocitypowered.api.command.CommandManager;
 import com.velocitypowered.api.command.CommandMeta;
 import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.connection.LoginEvent;
 import com.velocitypowered.api.event.connection.PostLoginEvent;
 import com.velocitypowered.api.event.player.PlayerChooseInitialServerEvent;
 import com.velocitypowered.api.event.player.ServerConnectedEvent;
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.EventTask;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.permission.Tristate;
@@ -19,14 +21,22 @@ import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.ProxyServer;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
 import com.velocitypowered.api.scheduler.ScheduledTask;
+import net.earthmc.queue.audit.AuditLog;
 import net.earthmc.queue.commands.Brig;
 import net.earthmc.queue.commands.JoinCommand;
 import net.earthmc.queue.commands.LeaveCommand;
 import net.earthmc.queue.commands.PauseCommand;
 import net.earthmc.queue.commands.QueueCommand;
 import net.earthmc.queue.config.QueueConfig;
+import net.earthmc.queue.config.QueueConfig.AuditSettings;
+import net.earthmc.queue.config.QueueConfig.DisplayMode;
+import net.earthmc.queue.config.QueueConfig.MetricsSettings;
 import net.earthmc.queue.impl.local.LocalQueue;
+import net.earthmc.queue.metrics.MetricsRegistry;
+import net.earthmc.queue.metrics.MetricsServer;
+import net.earthmc.queue.metrics.StorageMetrics;
 import net.earthmc.queue.storage.FlatFileStorage;
+import net.earthmc.queue.storage.LogStorage;
 import net.earthmc.queue.storage.SQLStorage;
 import net.earthmc.queue.storage.Storage;
 import net.kyori.adventure.text.Component;
@@ -36,6 +46,7 @@ import org.slf4j.Logger;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.net.InetSocketAddress;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
@@ -49,12 +60,16 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Plugin(id = "queue", name = "Queue", version = BuildConstants.VERSION, authors = {"Warriorrr"})
 public class QueuePlugin {
 
     private static QueuePlugin instance;
+    // The longest time to wait for changed player data to be written when the storage is disabled.
+    private static final long STORAGE_FLUSH_TIMEOUT_SECONDS = 10;
     private final ProxyServer proxy;
     private final Logger logger;
     private final Path pluginFolderPath;
@@ -63,7 +78,21 @@ public class QueuePlugin {
     private QueueConfig config;
     private boolean debug = false;
     private Storage storage;
+    private @Nullable ScheduledTask storageFlushTask;
     private final Map<UUID, ScheduledTask> scheduledTasks = new ConcurrentHashMap<>();
+    // Queues of servers that players have been sent to as their initial server, until they have connected to it.
+    private final Map<UUID, Queue> pendingInitialConnects = new ConcurrentHashMap<>();
+    private final MessageBuffer messageBuffer = new MessageBuffer();
+    private @Nullable ScheduledTask messageFlushTask;
+    private @Nullable ScheduledTask displayTask;
+    // The display mode of the last refresh, so that displays are hidden once after the live display has been turned off.
+    private DisplayMode displayedMode = DisplayMode.NONE;
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final StorageMetrics storageMetrics = new StorageMetrics(metrics);
+    private @Nullable MetricsServer metricsServer;
+    private @Nullable MetricsSettings metricsServerSettings;
+    private volatile @Nullable AuditLog auditLog;
+    private @Nullable AuditSettings auditLogSettings;
 
     @Inject
     public QueuePlugin(ProxyServer proxy, CommandManager commandManager, Logger logger, @DataDirectory Path pluginFolderPath) {
@@ -87,9 +116,7 @@ public class QueuePlugin {
             queues.put(server.getServerInfo().getName().toLowerCase(Locale.ROOT), new LocalQueue(server, this));
         }
 
-        this.storage = config.getStorageType().equalsIgnoreCase("sql")
-                ? new SQLStorage(this)
-                : new FlatFileStorage(this, pluginFolderPath.resolve("data"));
+        this.storage = createStorage();
 
         try {
             this.storage.enable();
@@ -101,46 +128,185 @@ public class QueuePlugin {
         // Load any paused queues from the paused-queues.json file.
         loadPausedQueues();
 
-        proxy.getScheduler().buildTask(this, () -> {
-            for (Queue queue : queues().values())
-                queue.sendNext();
-        }).repeat(500, TimeUnit.MILLISECONDS).schedule();
-
         proxy.getScheduler().buildTask(this, () -> {
             for (Queue queue : queues.values())
                 queue.refreshMaxPlayers();
         }).repeat(10, TimeUnit.SECONDS).schedule();
+
+        scheduleMessageFlush();
+        scheduleDisplayRefresh();
+        scheduleStorageFlush();
+        startMetricsServer();
+        startAuditLog();
+    }
+
+    /**
+     * Starts the audit log if it is enabled, or restarts it if its settings have changed since it was started.
+     */
+    private void startAuditLog() {
+        final AuditSettings settings = config.auditSettings();
+        if (settings.equals(auditLogSettings))
+            return;
+
+        stopAuditLog();
+        if (!settings.enabled())
+            return;
+
+        final AuditLog auditLog = new AuditLog(settings.bufferSize(), pluginFolderPath.resolve("audit"), settings.maxFileSize(), settings.maxFiles(), logger);
+        try {
+            auditLog.start();
+            this.auditLog = auditLog;
+            this.auditLogSettings = settings;
+        } catch (IOException e) {
+            logger.error("Failed to start the audit log", e);
+        }
+    }
+
+    private void stopAuditLog() {
+        final AuditLog auditLog = this.auditLog;
+        this.auditLog = null;
+        this.auditLogSettings = null;
+
+        if (auditLog != null)
+            auditLog.stop();
+    }
+
+    /**
+     * Starts the metrics endpoint if it is enabled, or restarts it if its address has changed since it was started.
+     */
+    private void startMetricsServer() {
+        final MetricsSettings settings = config.metricsSettings();
+        if (settings.equals(metricsServerSettings))
+            return;
+
+        stopMetricsServer();
+        if (!settings.enabled())
+            return;
+
+        try {
+            this.metricsServer = new MetricsServer(metrics, new InetSocketAddress(settings.address(), settings.port()));
+            this.metricsServer.start();
+            this.metricsServerSettings = settings;
+            logger.info("Serving metrics on http://{}:{}/metrics", settings.address(), settings.port());
+        } catch (IOException e) {
+            this.metricsServer = null;
+            logger.error("Failed to start the metrics server on {}:{}", settings.address(), settings.port(), e);
+        }
+    }
+
+    private void stopMetricsServer() {
+        if (this.metricsServer != null) {
+            this.metricsServer.stop();
+            this.metricsServer = null;
+        }
+
+        this.metricsServerSettings = null;
+    }
+
+    private Storage createStorage() {
+        return switch (config.getStorageType().toLowerCase(Locale.ROOT)) {
+            case "sql" -> new SQLStorage(this);
+            // Imports the data of flat file storage the first time it is used, and whatever flat file storage saved since.
+            case "log" -> new LogStorage(pluginFolderPath.resolve("storage"), pluginFolderPath.resolve("data"), config.getLogSegmentSize(), logger, storageMetrics, config.storageExecutorSettings(), config.cacheSettings());
+            default -> new FlatFileStorage(this, pluginFolderPath.resolve("data"));
+        };
+    }
+
+    private void scheduleStorageFlush() {
+        if (this.storageFlushTask != null)
+            this.storageFlushTask.cancel();
+
+        this.storageFlushTask = proxy.getScheduler().buildTask(this, () -> storage.flush())
+                .repeat(config.getDatabaseFlushInterval().toMillis(), TimeUnit.MILLISECONDS).schedule();
+    }
+
+    /**
+     * Writes any changed player data that is still waiting to be written and disables the storage.
+     */
+    private void disableStorage() {
+        if (this.storage == null)
+            return;
+
+        try {
+            this.storage.flush().get(STORAGE_FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("Timed out while saving player data, changes of {} players have not been saved.", this.storage.pendingWrites());
+        } catch (ExecutionException e) {
+            logger.error("An exception occurred when saving player data", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            this.storage.disable();
+        } catch (Exception e) {
+            logger.error("An exception occurred when disabling the storage", e);
+        }
+    }
+
+    /**
+     * Flushes the messages sent to queued players once per tick if they are buffered.
+     */
+    private void scheduleMessageFlush() {
+        if (this.messageFlushTask != null) {
+            this.messageFlushTask.cancel();
+            this.messageFlushTask = null;
+        }
+
+        if (!config.notificationSettings().bufferMessages()) {
+            // Send anything that was buffered before buffering was turned off.
+            messageBuffer.flush();
+            return;
+        }
+
+        this.messageFlushTask = proxy.getScheduler().buildTask(this, messageBuffer::flush).repeat(50, TimeUnit.MILLISECONDS).schedule();
+    }
+
+    private void scheduleDisplayRefresh() {
+        if (this.displayTask != null)
+            this.displayTask.cancel();
+
+        this.displayTask = proxy.getScheduler().buildTask(this, this::refreshDisplays)
+                .repeat(config.displaySettings().refreshInterval().toMillis(), TimeUnit.MILLISECONDS).schedule();
+    }
+
+    private void refreshDisplays() {
+        final DisplayMode mode = config.displaySettings().mode();
+        if (mode == DisplayMode.NONE && displayedMode == DisplayMode.NONE)
+            return;
+
+        displayedMode = mode;
+        for (Queue queue : queues.values())
+            queue.execute(() -> queue.refreshDisplays(mode));
     }
 
     @Subscribe
     public void onProxyShutdown(ProxyShutdownEvent event) {
-        if (this.storage != null) {
-            try {
-                this.storage.disable();
-            } catch (Exception e) {
-                logger.error("An exception occurred when disabling the storage", e);
-            }
-        }
+        // Players that are still online are saved here, their disconnect events may not run before the proxy exits.
+        if (this.storage != null)
+            queuedPlayers.values().forEach(this.storage::savePlayer);
+
+        disableStorage();
 
         savePausedQueues();
+        stopMetricsServer();
+        stopAuditLog();
     }
 
     public boolean reload() {
         if (!this.config.reload())
             return false;
 
-        // Disable storage if it isn't null
-        if (this.storage != null) {
-            try {
-                this.storage.disable();
-            } catch (Exception e) {
-                logger.error("An exception occurred when disabling the storage.", e);
-            }
-        }
+        // The refresh interval of the live display may have changed.
+        scheduleMessageFlush();
+        scheduleDisplayRefresh();
+        scheduleStorageFlush();
+        startMetricsServer();
+        startAuditLog();
+
+        disableStorage();
 
-        this.storage = config.getStorageType().equalsIgnoreCase("sql")
-                ? new SQLStorage(this)
-                : new FlatFileStorage(this, pluginFolderPath.resolve("data"));
+        this.storage = createStorage();
 
         try {
             this.storage.enable();
@@ -152,9 +318,17 @@ public class QueuePlugin {
         return true;
     }
 
+    @Subscribe
+    public void onLogin(LoginEvent event) {
+        // Start loading the player's data as early as possible, so that it has usually loaded by the time their initial server is chosen.
+        // Only the storage's cache is filled, since a later handler may still deny the login, after which no disconnect event follows.
+        if (event.getResult().isAllowed())
+            storage.prefetch(event.getPlayer().getUniqueId());
+    }
+
     @Subscribe
     public void onPlayerJoin(PostLoginEvent event) {
-        // Load saved data for this player async upon login.
+        // Load saved data for this player async upon login, if it wasn't already.
         queued(event.getPlayer()).loadData();
     }
 
@@ -173,9 +347,14 @@ public class QueuePlugin {
                     player.setLastJoinedServer(server.getServerInfo().getName());
             });
 
+            // Only queued if the player's data has changed, and written by the next flush.
             this.storage.savePlayer(player);
         }
 
+        // A slot on the server the player was on has freed up
+        event.getPlayer().getCurrentServer().ifPresent(server -> playerDisconnected(server.getServer()));
+        clearPendingConnect(uuid);
+
         queuedPlayers.remove(uuid);
         cancelAutoQueueTask(event.getPlayer());
     }
@@ -189,10 +368,30 @@ public class QueuePlugin {
             player.queue().remove(player);
 
         processAutoQueue(event, player);
+
+        clearPendingConnect(event.getPlayer().getUniqueId());
+        final Queue connected = queue(event.getServer().getServerInfo().getName());
+        if (connected != null)
+            connected.playerConnected();
+
+        // A slot on the server the player came from has freed up
+        event.getPreviousServer().ifPresent(this::playerDisconnected);
+    }
+
+    private void playerDisconnected(RegisteredServer server) {
+        final Queue queue = queues.get(server.getServerInfo().getName().toLowerCase(Locale.ROOT));
+        if (queue != null)
+            queue.playerDisconnected();
+    }
+
+    private void clearPendingConnect(UUID uuid) {
+        final Queue queue = pendingInitialConnects.remove(uuid);
+        if (queue != null)
+            queue.removePendingConnect();
     }
 
     @Subscribe
-    public void onChooseInitialServer(PlayerChooseInitialServerEvent event) {
+    public @Nullable EventTask onChooseInitialServer(PlayerChooseInitialServerEvent event) {
         final RegisteredServer initial = event.getInitialServer().orElse(null);
 
         if (
@@ -201,22 +400,53 @@ public class QueuePlugin {
                 || (initial != null && !config.autoQueueSettings().autoQueueServers().contains(initial.getServerInfo().getName().toLowerCase(Locale.ROOT)))
                 || event.getPlayer().getPermissionValue("queue.autoqueue") == Tristate.FALSE
         )
-            return;
+            return null;
 
         QueuedPlayer player = queued(event.getPlayer());
         final CompletableFuture<Void> loadFuture = player.loadFuture();
-        if (loadFuture != null && player.getLastJoinedServer().isEmpty())
-            loadFuture.join(); // We want to ensure that player data is loaded so that we can get their last server
+        if (loadFuture == null || player.getLastJoinedServer().isPresent()) {
+            chooseInitialServer(event, player);
+            return null;
+        }
 
+        // Wait for the player's data to load so that we can get their last server, without blocking the event thread, and
+        // send them to the default target instead if it takes too long.
+        final long deadline = config.autoQueueSettings().dataLoadDeadline().toMillis();
+        return EventTask.resumeWhenComplete(loadFuture.copy()
+                .handle((v, t) -> {
+                    // A failed load is done, it isn't going to finish in time either way.
+                    if (t != null)
+                        logger.warn("The data of {} failed to load, choosing their initial server without it.", event.getPlayer().getUsername(), t);
+
+                    return true;
+                })
+                .completeOnTimeout(false, deadline, TimeUnit.MILLISECONDS)
+                .thenAccept(done -> {
+                    if (!done) {
+                        storageMetrics.loadDeadlineMisses().increment();
+                        debug("The data of {} did not load in time, choosing their initial server without it.", event.getPlayer().getUsername());
+                    }
+
+                    chooseInitialServer(event, player);
+                }));
+    }
+
+    private void chooseInitialServer(PlayerChooseInitialServerEvent event, QueuedPlayer player) {
         final String target = validateAutoQueueTarget(event.getPlayer(), player.getLastJoinedServer().orElse(config.autoQueueSettings().defaultTarget()));
 
         if (!Brig.hasPrefixedPermission(event.getPlayer(), "queue.join.", target))
             return;
 
         Queue queue = queue(target);
-        if (queue == null || queue.paused() || queue.getServer().getPlayersConnected().size() + queue.allPlayers().size() >= queue.maxPlayers())
+        if (queue == null || queue.paused() || queue.occupancy() + queue.snapshot().inFlight() + queue.queuedCount() >= queue.maxPlayers())
             return;
 
+        // Count the player against the server right away, so that a burst of logins can't all be sent to the last free slot.
+        queue.addPendingConnect();
+        final Queue previous = pendingInitialConnects.put(event.getPlayer().getUniqueId(), queue);
+        if (previous != null)
+            previous.removePendingConnect();
+
         event.setInitialServer(queue.getServer());
         logger.info("{} has been sent to {} via autoqueue.", event.getPlayer().getUsername(), queue.getServerFormatted());
     }
@@ -254,8 +484,8 @@ public class QueuePlugin {
 
             Queue queue = queue(target);
             if (queue != null) {
-                debug(event.getPlayer().getUsername() + " has been automatically queued for " + target + ".");
-                event.getPlayer().sendMessage(Component.text("You are being automatically queued for " + queue.getServerFormatted() + ".", NamedTextColor.GREEN));
+                debug("{} has been automatically queued for {}.", event.getPlayer().getUsername(), target);
+                player.sendMessage(Component.text("You are being automatically queued for " + queue.getServerFormatted() + ".", NamedTextColor.GREEN));
                 queue.enqueue(player);
             }
         }).delay(config.autoQueueSettings().delay(), TimeUnit.SECONDS).schedule());
@@ -315,10 +545,30 @@ public class QueuePlugin {
     }
 
     public static void debug(Object message) {
-        if (instance != null && instance.debug)
+        if (isDebug())
             instance.logger.info(String.valueOf(message));
     }
 
+    /**
+     * Logs a debug message with {@code {}} placeholders, the message is only built if debug is enabled.
+     */
+    public static void debug(String format, Object arg) {
+        if (isDebug())
+            instance.logger.info(format, arg);
+    }
+
+    public static void debug(String format, Object arg1, Object arg2) {
+        if (isDebug())
+            instance.logger.info(format, arg1, arg2);
+    }
+
+    /**
+     * @return Whether debug messages are logged, for guarding debug messages that take more than two arguments.
+     */
+    public static boolean isDebug() {
+        return instance != null && instance.debug;
+    }
+
     public void setDebug(boolean debug) {
         this.debug = debug;
     }
@@ -331,6 +581,30 @@ public class QueuePlugin {
         return this.config;
     }
 
+    /**
+     * @return The buffer for messages sent to queued players, or null if messages shouldn't be buffered.
+     */
+    @Nullable
+    public MessageBuffer messageBuffer() {
+        return config != null && config.notificationSettings().bufferMessages() ? messageBuffer : null;
+    }
+
+    /**
+     * @return The audit log, or null if it isn't enabled.
+     */
+    @Nullable
+    public AuditLog auditLog() {
+        return this.auditLog;
+    }
+
+    public MetricsRegistry metrics() {
+        return this.metrics;
+    }
+
+    public StorageMetrics storageMetrics() {
+        return this.storageMetrics;
+    }
+
     public Storage storage() {
         return storage;
     }
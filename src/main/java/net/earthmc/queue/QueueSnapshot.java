@@ -0,0 +1,14 @@
+package net.earthmc.queue;
+
+import java.util.Map;
+
+/**
+ * An immutable view of the sizes of a queue, published by the queue after every task that ran in its mailbox.
+ *
+ * @param subQueueSizes The amount of players in each sub queue, keyed by sub queue name in sub queue order.
+ * @param players The total amount of players in the queue.
+ * @param inFlight The amount of players that are currently being sent to the server.
+ */
+public record QueueSnapshot(Map<String, Integer> subQueueSizes, int players, int inFlight) {
+    public static final QueueSnapshot EMPTY = new QueueSnapshot(Map.of(), 0, 0);
+}
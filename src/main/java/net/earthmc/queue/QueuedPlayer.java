@@ -1,34 +1,67 @@
 package net.earthmc.queue;
 
 import com.velocitypowered.api.proxy.Player;
+import net.earthmc.queue.storage.PlayerData;
 import net.kyori.adventure.audience.Audience;
 import net.kyori.adventure.audience.ForwardingAudience;
 import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.JoinConfiguration;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class QueuedPlayer implements ForwardingAudience.Single {
     private static final Priority NONE_PRIORITY = new Priority("none", 0, Component.empty());
 
     private final UUID uuid;
     private final String name;
-    private Queue queue;
+    private final AtomicReference<Queue> queue = new AtomicReference<>();
     private Priority priority;
     private String lastJoined;
     private boolean autoQueueDisabled;
     private boolean dataLoaded = false;
+    // Whether the data that is kept between sessions has changed since it was loaded or last saved.
+    private final AtomicBoolean dirty = new AtomicBoolean();
     private CompletableFuture<Void> loadFuture = null;
+    // The position this player was last told they're in, owned by their queue's mailbox.
+    private int lastNotifiedPosition = -1;
+    private Instant lastNotifiedTime = Instant.EPOCH;
+    // Used by the ProgressSchedule of this player's sub queue: the amount of departures after which this player is due a progress
+    // message, and the last broadcast that looked at this player.
+    long progressDue = -1;
+    long progressRound;
+    // When this player joined their current queue, as returned by System#nanoTime.
+    private long enqueuedAt;
+    // Messages waiting for the message buffer to be flushed.
+    private final ConcurrentLinkedQueue<Component> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+    private final PositionDisplay display = new PositionDisplay();
 
     public QueuedPlayer(@NotNull Player player) {
         this.uuid = player.getUniqueId();
         this.name = player.getUsername();
     }
 
+    @VisibleForTesting
+    public QueuedPlayer(@NotNull UUID uuid, @NotNull String name, @NotNull Priority priority) {
+        this.uuid = uuid;
+        this.name = name;
+        this.priority = priority;
+    }
+
     @Nullable
     public Player player() {
         return QueuePlugin.instance().proxy().getPlayer(this.uuid).orElse(null);
@@ -47,29 +80,95 @@ public class QueuedPlayer implements ForwardingAudience.Single {
 
     /**
      * Gets the player's current position in their sub queue, or -1 if they are not in a queue.
+     * Sub queues index their players, so this is cheap enough to call for every queued player.
+     * This reads the sub queue directly, so it should be called from within the queue's mailbox, see {@link Queue#query}.
      * @return -1 or the player's sub queue position
      */
     public int position() {
+        final Queue queue = this.queue.get();
         if (queue == null)
             return -1;
 
         return queue.getSubQueue(this).playerPosition(this);
     }
 
+    /**
+     * Gets the estimated time until the player is sent to the server of their queue.
+     * Like {@link #position()}, this should be called from within the queue's mailbox.
+     * @return The estimated wait, or an empty optional if the player isn't in a queue or it's not known yet.
+     */
+    public Optional<Duration> eta() {
+        final Queue queue = this.queue.get();
+        if (queue == null)
+            return Optional.empty();
+
+        final SubQueue subQueue = queue.getSubQueue(this);
+        return queue.eta(subQueue, subQueue.playerPosition(this));
+    }
+
     public boolean isInQueue() {
-        if (this.queue != null)
-            if (!this.queue.hasPlayer(this))
-                this.queue = null;
+        final Queue queue = this.queue.get();
+        if (queue != null && !queue.hasPlayer(this)) {
+            this.queue.compareAndSet(queue, null);
+            return false;
+        }
 
-        return this.queue != null;
+        return queue != null;
     }
 
     public Queue queue() {
-        return this.queue;
+        return this.queue.get();
     }
 
     public void queue(@Nullable Queue queue) {
-        this.queue = queue;
+        this.queue.set(queue);
+    }
+
+    /**
+     * Clears this player's queue, but only if it is still the given queue. Queues can be modified from their own mailboxes
+     * concurrently, so this prevents a queue from clearing a player that has since joined a different queue.
+     *
+     * @return Whether the player was still in the given queue.
+     */
+    public boolean clearQueue(@NotNull Queue queue) {
+        return this.queue.compareAndSet(queue, null);
+    }
+
+    /**
+     * @return The position this player was last told they're in, or -1 if they haven't been told a position in their current queue.
+     */
+    public int lastNotifiedPosition() {
+        return this.lastNotifiedPosition;
+    }
+
+    @NotNull
+    public Instant lastNotifiedTime() {
+        return this.lastNotifiedTime;
+    }
+
+    public void notifiedPosition(int position, @NotNull Instant time) {
+        this.lastNotifiedPosition = position;
+        this.lastNotifiedTime = time;
+    }
+
+    public void clearNotifiedPosition() {
+        notifiedPosition(-1, Instant.EPOCH);
+    }
+
+    public long enqueuedAt() {
+        return this.enqueuedAt;
+    }
+
+    public void enqueuedAt(long nanoTime) {
+        this.enqueuedAt = nanoTime;
+    }
+
+    /**
+     * @return This player's live position display.
+     */
+    @NotNull
+    public PositionDisplay display() {
+        return this.display;
     }
 
     private @NotNull Priority calculatePriority() {
@@ -89,6 +188,47 @@ public class QueuedPlayer implements ForwardingAudience.Single {
     public void clearPriority() {
         // Reset the priority to null so that it's re-calculated next time #priority is called.
         this.priority = null;
+
+        final Queue queue = this.queue.get();
+        if (queue != null)
+            queue.priorityChanged(this);
+    }
+
+    /**
+     * Sends a message to this player, messages sent within the same tick are joined into one.
+     */
+    @Override
+    public void sendMessage(@NotNull Component message) {
+        final QueuePlugin plugin = QueuePlugin.instance();
+        if (plugin == null || plugin.messageBuffer() == null) {
+            audience().sendMessage(message);
+            return;
+        }
+
+        plugin.messageBuffer().add(this, message);
+    }
+
+    /**
+     * @return Whether this player wasn't waiting for a flush yet, and has to be flushed.
+     */
+    boolean bufferMessage(@NotNull Component message) {
+        outbound.add(message);
+        return flushPending.compareAndSet(false, true);
+    }
+
+    void flushMessages() {
+        // Reset the flag first, so that messages added during the flush schedule another one rather than getting lost.
+        flushPending.set(false);
+
+        final List<Component> messages = new ArrayList<>();
+        Component message;
+        while ((message = outbound.poll()) != null)
+            messages.add(message);
+
+        if (messages.isEmpty())
+            return;
+
+        audience().sendMessage(messages.size() == 1 ? messages.getFirst() : Component.join(JoinConfiguration.newlines(), messages));
     }
 
     @Override
@@ -109,7 +249,12 @@ public class QueuedPlayer implements ForwardingAudience.Single {
     public void loadData() {
         if (!dataLoaded) {
             dataLoaded = true;
-            this.loadFuture = QueuePlugin.instance().storage().loadPlayer(this).whenComplete((v, t) -> this.loadFuture = null);
+            final QueuePlugin plugin = QueuePlugin.instance();
+            final long start = System.nanoTime();
+            this.loadFuture = plugin.storage().loadPlayer(this).whenComplete((v, t) -> {
+                this.loadFuture = null;
+                plugin.storageMetrics().loadTime().recordSince(start);
+            });
         }
     }
 
@@ -123,7 +268,12 @@ public class QueuedPlayer implements ForwardingAudience.Single {
     }
 
     public void setAutoQueueDisabled(boolean autoQueueDisabled) {
+        final boolean changed = this.autoQueueDisabled != autoQueueDisabled;
         this.autoQueueDisabled = autoQueueDisabled;
+
+        // Marked after the field is written, so that a concurrent save either sees the new value or leaves the player dirty.
+        if (changed)
+            dirty.set(true);
     }
 
     public Optional<String> getLastJoinedServer() {
@@ -131,6 +281,32 @@ public class QueuedPlayer implements ForwardingAudience.Single {
     }
 
     public void setLastJoinedServer(@Nullable String lastJoinedServer) {
+        final boolean changed = !Objects.equals(this.lastJoined, lastJoinedServer);
         this.lastJoined = lastJoinedServer;
+
+        if (changed)
+            dirty.set(true);
+    }
+
+    /**
+     * Sets the player's data to data loaded from storage, without marking it as changed.
+     */
+    public void load(@NotNull PlayerData data) {
+        this.lastJoined = data.lastJoinedServer();
+        this.autoQueueDisabled = data.autoQueueDisabled();
+    }
+
+    @NotNull
+    public PlayerData data() {
+        return new PlayerData(this.uuid, this.lastJoined, this.autoQueueDisabled);
+    }
+
+    /**
+     * Marks the player's data as saved.
+     *
+     * @return Whether the data had changed since it was loaded or last saved.
+     */
+    public boolean markSaved() {
+        return dirty.getAndSet(false);
     }
 }
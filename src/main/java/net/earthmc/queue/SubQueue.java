@@ -4,7 +4,7 @@ import net.earthmc.queue.object.Weighted;
 import org.jspecify.annotations.NullMarked;
 
 import java.time.Instant;
-import java.util.Deque;
+import java.util.Collection;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
@@ -12,6 +12,7 @@ import java.util.Set;
 public abstract class SubQueue extends Weighted {
     private final String name;
     private Instant lastPositionMessageTime = Instant.EPOCH;
+    private final ProgressSchedule progress = new ProgressSchedule(this);
     public final int maxSends;
 
     public SubQueue(String name, int weight, int maxSends) {
@@ -20,48 +21,42 @@ public abstract class SubQueue extends Weighted {
         this.maxSends = maxSends;
     }
 
-    public abstract Deque<QueuedPlayer> players();
+    /**
+     * @return The players in this sub queue, in queue order.
+     */
+    public abstract Collection<QueuedPlayer> players();
 
     public abstract Set<QueuedPlayer> playerSet();
 
-    public void addPlayer(QueuedPlayer player) {
-        QueuePlugin.debug("Added player " + player.name() + " to subqueue " + this.name);
-        players().addLast(player);
-    }
+    public abstract void addPlayer(QueuedPlayer player);
 
     public abstract void addAfterPlayer(QueuedPlayer player, QueuedPlayer anchor);
 
+    /**
+     * Inserts a player in front of the first player with a lower priority weight, but no further back than the given position.
+     *
+     * @param player The player to add
+     * @param weight The priority weight of the player
+     * @param maxPosition The position the player should be inserted at if no player with a lower weight comes before it.
+     * @return The position the player was inserted at
+     */
+    public abstract int addByWeight(QueuedPlayer player, int weight, int maxPosition);
+
     public abstract int playerPosition(QueuedPlayer player);
 
-    public boolean removePlayer(QueuedPlayer player) {
-        if (playerSet().remove(player)) {
-            QueuePlugin.debug("Removed player " + player.name() + " from subqueue " + this.name);
-            players().remove(player);
-            return true;
-        } else {
-            return false;
-        }
-    }
+    /**
+     * Called from within the queue's mailbox when the priority of a player in this sub queue may have changed, so that sub queues which
+     * keep the priority weight of their players around can update it.
+     */
+    public void priorityChanged(QueuedPlayer player) {}
 
-    public void addToTail(QueuedPlayer player) {
-        QueuePlugin.debug("Added player " + player.name() + " to the end of subqueue " + this.name);
-        players().addLast(player);
-        playerSet().add(player);
-    }
+    public abstract boolean removePlayer(QueuedPlayer player);
 
-    public void addToHead(QueuedPlayer player) {
-        QueuePlugin.debug("Added player " + player.name() + " to the head of subqueue " + this.name);
-        players().addFirst(player);
-        playerSet().add(player);
-    }
+    public abstract void addToTail(QueuedPlayer player);
 
-    public QueuedPlayer removeFirst() throws NoSuchElementException {
-        final QueuedPlayer player = players().removeFirst();
-        QueuePlugin.debug("Removed player " + player.name() + " as the first player of subqueue " + this.name);
-        playerSet().remove(player);
+    public abstract void addToHead(QueuedPlayer player);
 
-        return player;
-    }
+    public abstract QueuedPlayer removeFirst() throws NoSuchElementException;
 
     public boolean hasPlayer(final QueuedPlayer player) {
         return playerSet().contains(player);
@@ -82,4 +77,11 @@ public abstract class SubQueue extends Weighted {
     public Instant lastPositionMessageTime() {
         return this.lastPositionMessageTime;
     }
+
+    /**
+     * @return The schedule of progress messages for this sub queue. Implementations report added players and removals from the head to it.
+     */
+    public ProgressSchedule progress() {
+        return this.progress;
+    }
 }
@@ -0,0 +1,27 @@
+package net.earthmc.queue.audit;
+
+/**
+ * The types of records written to the audit log.
+ */
+public enum AuditEvent {
+    /** A player joined a queue. */
+    ENQUEUE,
+    /** A player left a queue before being sent. */
+    LEAVE,
+    /** A queue started sending a player. */
+    SEND,
+    /** A player was sent to the server successfully. */
+    SENT,
+    /** Sending a player failed. */
+    SEND_FAILED,
+    /** A queue was paused, records without a player have the nil UUID. */
+    PAUSE,
+    /** A queue was unpaused. */
+    UNPAUSE;
+
+    private static final AuditEvent[] VALUES = values();
+
+    static AuditEvent of(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
@@ -0,0 +1,318 @@
+package net.earthmc.queue.audit;
+
+import org.jetbrains.annotations.VisibleForTesting;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A structured log of what queues do with players, written to a rolling text file.
+ * <p>
+ * Records have a fixed layout of an event type, a player UUID, a queue id, a sub queue id and a timestamp, and are written into a
+ * preallocated ring buffer of parallel arrays. Producers claim a slot with a compare and set, fill in the arrays and publish the slot by
+ * writing its sequence, so recording never takes a lock or allocates. When the buffer is full, records are dropped and counted rather
+ * than making the producer wait. A single background thread drains the buffer, and is the only one that formats records or does I/O.
+ * <p>
+ * Queue and sub queue names are stored as ids, see {@link #id(String)}, and only turned back into names when a record is written out.
+ */
+@NullMarked
+public class AuditLog {
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final List<String> NAMES = new CopyOnWriteArrayList<>();
+    private static final long DRAIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final String FILE_NAME = "audit.log";
+
+    private final int mask;
+    private final int[] types;
+    private final long[] mostSignificantBits;
+    private final long[] leastSignificantBits;
+    private final int[] queueIds;
+    private final int[] subQueueIds;
+    private final long[] timestamps;
+    // The sequence of the record in each slot, written last so that a slot is only read once it has been filled in.
+    private final AtomicLongArray published;
+    // The sequence of the next record to be claimed by a producer.
+    private final AtomicLong claimed = new AtomicLong();
+    // The sequence of the next record to be drained, only written by the drain thread.
+    private final AtomicLong drained = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+
+    private final @Nullable Path directory;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final @Nullable Logger logger;
+    private final StringBuilder line = new StringBuilder(128);
+    private @Nullable Writer writer;
+    // Whether opening the log file failed the last time it was tried, so that the failure is only logged once until it succeeds again.
+    private boolean openFailing;
+    private long fileSize;
+    private @Nullable Thread thread;
+    private volatile boolean running;
+
+    /**
+     * @param capacity The amount of records the buffer can hold, rounded up to a power of two.
+     * @param directory The directory to write the log files to, or null to only drain on demand.
+     * @param maxFileSize The size in bytes after which the log file is rolled over.
+     * @param maxFiles The amount of rolled over files to keep.
+     */
+    public AuditLog(int capacity, @Nullable Path directory, long maxFileSize, int maxFiles, @Nullable Logger logger) {
+        final int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.types = new int[size];
+        this.mostSignificantBits = new long[size];
+        this.leastSignificantBits = new long[size];
+        this.queueIds = new int[size];
+        this.subQueueIds = new int[size];
+        this.timestamps = new long[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++)
+            this.published.set(i, -1);
+
+        this.directory = directory;
+        this.maxFileSize = Math.max(1024, maxFileSize);
+        this.maxFiles = Math.max(0, maxFiles);
+        this.logger = logger;
+    }
+
+    /**
+     * @return The id of a queue or sub queue name, ids are the same for as long as the proxy is running.
+     */
+    public static int id(String name) {
+        final Integer id = IDS.get(name);
+        if (id != null)
+            return id;
+
+        synchronized (NAMES) {
+            return IDS.computeIfAbsent(name, k -> {
+                NAMES.add(k);
+                return NAMES.size() - 1;
+            });
+        }
+    }
+
+    private static String name(int id) {
+        return id >= 0 && id < NAMES.size() ? NAMES.get(id) : "-";
+    }
+
+    /**
+     * Adds a record to the buffer, or drops it if the buffer is full.
+     *
+     * @param subQueueId The id of the sub queue, or -1 if the record is not about a sub queue.
+     */
+    public void record(AuditEvent type, @Nullable UUID uuid, int queueId, int subQueueId) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - drained.get() > mask) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        final int slot = (int) (sequence & mask);
+        types[slot] = type.ordinal();
+        mostSignificantBits[slot] = uuid == null ? 0 : uuid.getMostSignificantBits();
+        leastSignificantBits[slot] = uuid == null ? 0 : uuid.getLeastSignificantBits();
+        queueIds[slot] = queueId;
+        subQueueIds[slot] = subQueueId;
+        timestamps[slot] = System.currentTimeMillis();
+        published.setRelease(slot, sequence);
+    }
+
+    /**
+     * @return The amount of records that were dropped because the buffer was full.
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Writes all published records to the given writer, only one thread may drain at a time.
+     *
+     * @return The amount of records written.
+     */
+    @VisibleForTesting
+    int drainTo(Writer out) throws IOException {
+        int count = 0;
+        long sequence = drained.get();
+
+        while (published.getAcquire((int) (sequence & mask)) == sequence) {
+            final int slot = (int) (sequence & mask);
+
+            line.setLength(0);
+            line.append(Instant.ofEpochMilli(timestamps[slot])).append(' ')
+                    .append(AuditEvent.of(types[slot]).name()).append(' ')
+                    .append(new UUID(mostSignificantBits[slot], leastSignificantBits[slot])).append(' ')
+                    .append(name(queueIds[slot])).append(' ')
+                    .append(name(subQueueIds[slot])).append('\n');
+
+            out.append(line);
+            fileSize += line.length();
+            count++;
+
+            // Release the slot to producers.
+            drained.setRelease(++sequence);
+        }
+
+        return count;
+    }
+
+    /**
+     * Starts the background thread that drains the buffer to the log file.
+     */
+    public void start() throws IOException {
+        if (directory == null || running)
+            return;
+
+        Files.createDirectories(directory);
+        openWriter(directory);
+
+        running = true;
+        thread = new Thread(this::run, "Queue Audit Log");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the background thread, after writing out any records that are still in the buffer.
+     */
+    public void stop() {
+        running = false;
+
+        final Thread thread = this.thread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        long lastDropped = 0;
+
+        while (running) {
+            drainToFile();
+
+            final long dropped = dropped();
+            if (dropped != lastDropped && logger != null)
+                logger.warn("The audit log buffer was full, {} records have been dropped so far.", dropped);
+            lastDropped = dropped;
+
+            LockSupport.parkNanos(DRAIN_INTERVAL_NANOS);
+        }
+
+        drainToFile();
+        closeWriter();
+    }
+
+    private void drainToFile() {
+        // Opening the log file failed before, such as while rolling it over. Records stay in the buffer while it is retried, and are
+        // dropped and counted once it is full.
+        if (this.writer == null && !reopenWriter())
+            return;
+
+        final Writer writer = this.writer;
+        if (writer == null)
+            return;
+
+        try {
+            if (drainTo(writer) > 0)
+                writer.flush();
+
+            if (fileSize >= maxFileSize)
+                roll();
+        } catch (IOException e) {
+            if (logger != null)
+                logger.error("An exception occurred while writing the audit log", e);
+        }
+    }
+
+    private void roll() throws IOException {
+        closeWriter();
+
+        final Path directory = this.directory;
+        if (directory == null)
+            return;
+
+        // audit.log becomes audit.1.log, audit.1.log becomes audit.2.log and so on, the oldest file is deleted.
+        Files.deleteIfExists(directory.resolve(rolledName(maxFiles)));
+        for (int i = maxFiles - 1; i >= 0; i--) {
+            final Path file = directory.resolve(rolledName(i));
+            if (Files.exists(file))
+                Files.move(file, directory.resolve(rolledName(i + 1)), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        openWriter(directory);
+    }
+
+    /**
+     * @return Whether the log file is open again.
+     */
+    private boolean reopenWriter() {
+        final Path directory = this.directory;
+        if (directory == null)
+            return false;
+
+        try {
+            openWriter(directory);
+        } catch (IOException e) {
+            if (!openFailing && logger != null)
+                logger.warn("Failed to open the audit log, retrying. Records are dropped once the buffer is full.", e);
+
+            openFailing = true;
+            return false;
+        }
+
+        if (openFailing && logger != null)
+            logger.info("The audit log has been opened again.");
+
+        openFailing = false;
+        return true;
+    }
+
+    private static String rolledName(int index) {
+        return index == 0 ? FILE_NAME : "audit." + index + ".log";
+    }
+
+    private void openWriter(Path directory) throws IOException {
+        final Path file = directory.resolve(FILE_NAME);
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.fileSize = Files.size(file);
+    }
+
+    private void closeWriter() {
+        if (writer == null)
+            return;
+
+        try {
+            writer.close();
+        } catch (IOException e) {
+            if (logger != null)
+                logger.error("An exception occurred while closing the audit log", e);
+        }
+
+        writer = null;
+    }
+}
@@ -8,8 +8,8 @@ import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.proxy.Player;
 import net.earthmc.queue.Queue;
 import net.earthmc.queue.QueuePlugin;
-import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.format.NamedTextColor;
+import net.earthmc.queue.QueuedPlayer;
+import net.earthmc.queue.config.Messages;
 
 import java.util.List;
 import java.util.Locale;
@@ -31,24 +31,27 @@ public class JoinCommand {
                      }
 
                      final String server = ctx.getArgument("server", String.class);
+                     final Messages messages = plugin.config().messages();
+                     // Replies go through the queued player, so that they arrive after any queue messages that are still buffered.
+                     final QueuedPlayer queuedPlayer = plugin.queued(player);
                      if (!Brig.hasPrefixedPermission(player, "queue.join.", server)) {
-                         player.sendMessage(Component.text(server + " is not a valid server.", NamedTextColor.RED));
+                         queuedPlayer.sendMessage(messages.invalidServer().render(server));
                          return 0;
                      }
 
-                     if (player.getCurrentServer().map(currentServer -> currentServer.getServerInfo().getName().equalsIgnoreCase(server)).orElse(false)) {
-                         player.sendMessage(Component.text("You are already connected to this server.", NamedTextColor.RED));
+                     final Queue queue = plugin.queue(server);
+                     if (queue == null) {
+                         queuedPlayer.sendMessage(messages.invalidServer().render(server));
                          return 0;
                      }
 
-                     final Queue queue = plugin.queue(server);
-                     if (queue == null) {
-                         player.sendMessage(Component.text(server + " is not a valid server.", NamedTextColor.RED));
+                     if (player.getCurrentServer().map(currentServer -> currentServer.getServerInfo().getName().equalsIgnoreCase(server)).orElse(false)) {
+                         queuedPlayer.sendMessage(queue.messages().alreadyConnected().render());
                          return 0;
                      }
 
                      plugin.cancelAutoQueueTask(player);
-                     queue.enqueue(plugin.queued(player));
+                     queue.enqueue(queuedPlayer);
 
                      return Command.SINGLE_SUCCESS;
                  }))
@@ -25,13 +25,13 @@ public class LeaveCommand {
                 final QueuedPlayer queuedPlayer = plugin.queued(player);
 
                 if (!queuedPlayer.isInQueue()) {
-                    player.sendMessage(Component.text("You are not in a queue.", NamedTextColor.RED));
+                    queuedPlayer.sendMessage(Component.text("You are not in a queue.", NamedTextColor.RED));
                     return Command.SINGLE_SUCCESS;
                 }
 
                 queuedPlayer.queue().remove(queuedPlayer);
                 queuedPlayer.queue(null);
-                player.sendMessage(Component.text("You have left the queue.", NamedTextColor.GREEN));
+                queuedPlayer.sendMessage(Component.text("You have left the queue.", NamedTextColor.GREEN));
                 return Command.SINGLE_SUCCESS;
             })
             .build();
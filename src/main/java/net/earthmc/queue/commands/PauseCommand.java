@@ -44,6 +44,8 @@ public class PauseCommand {
             queue.unpause();
         }
 
+        queue.wakeup();
+
         final boolean newPaused = !paused;
         String message = String.format("You have %s the queue for server %s", newPaused ? "paused" : "resumed", server);
         if (reason != null) {
@@ -10,9 +10,15 @@ import com.velocitypowered.api.proxy.Player;
 import net.earthmc.queue.Queue;
 import net.earthmc.queue.QueuePlugin;
 import net.earthmc.queue.QueuedPlayer;
+import net.earthmc.queue.SubQueue;
+import net.earthmc.queue.config.Messages;
+import net.earthmc.queue.object.RateController;
+import net.earthmc.queue.object.ThroughputEstimator;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 
+import java.util.Locale;
+
 public class QueueCommand {
 
     private QueueCommand() {}
@@ -44,14 +50,19 @@ public class QueueCommand {
 
                     queuedPlayer.setAutoQueueDisabled(!queuedPlayer.isAutoQueueDisabled());
                     if (queuedPlayer.isAutoQueueDisabled()) {
-                        player.sendMessage(Component.text("You will no longer automatically join a queue after joining.", NamedTextColor.GREEN));
+                        queuedPlayer.sendMessage(Component.text("You will no longer automatically join a queue after joining.", NamedTextColor.GREEN));
                         plugin.cancelAutoQueueTask(player);
                     } else {
-                        player.sendMessage(Component.text("You will now automatically join the queue for your last server upon joining.", NamedTextColor.GREEN));
+                        queuedPlayer.sendMessage(Component.text("You will now automatically join the queue for your last server upon joining.", NamedTextColor.GREEN));
                     }
 
                     return Command.SINGLE_SUCCESS;
                 }))
+            .then(BrigadierCommand.literalArgumentBuilder("status")
+                .requires(source -> source.hasPermission("queue.status"))
+                .then(BrigadierCommand.requiredArgumentBuilder("server", StringArgumentType.word())
+                    .suggests((ctx, builder) -> Brig.filterByStart(ctx, builder, plugin.queues().keySet()))
+                    .executes(QueueCommand::sendStatus)))
             .then(BrigadierCommand.literalArgumentBuilder("skip")
                   .requires(source -> source.hasPermission("queue.skip"))
                   .then(BrigadierCommand.requiredArgumentBuilder("player", StringArgumentType.string())
@@ -81,7 +92,7 @@ public class QueueCommand {
 
                            player.createConnectionRequest(queue.getServer()).connect().thenAccept(result -> {
                                if (result.isSuccessful()) {
-                                   player.sendMessage(Component.text("You have been sent to " + queue.getServerFormatted() + ".", NamedTextColor.GREEN));
+                                   queuedPlayer.sendMessage(Component.text("You have been sent to " + queue.getServerFormatted() + ".", NamedTextColor.GREEN));
                                    ctx.getSource().sendMessage(Component.text(player.getUsername() + " has been sent to " + queue.getServerFormatted() + ".", NamedTextColor.GREEN));
                                }
                            });
@@ -135,18 +146,77 @@ public class QueueCommand {
         return new BrigadierCommand(node);
     }
 
+    private static int sendStatus(final CommandContext<CommandSource> ctx) {
+        final String server = ctx.getArgument("server", String.class);
+        final Queue queue = QueuePlugin.instance().queue(server);
+        if (queue == null) {
+            ctx.getSource().sendMessage(Component.text(server + " is not a valid server.", NamedTextColor.RED));
+            return 0;
+        }
+
+        queue.query(() -> {
+            final RateController rate = queue.rateController();
+            final ThroughputEstimator throughput = queue.throughput();
+
+            Component status = Component.text("Queue status for " + queue.getServerFormatted() + ":", NamedTextColor.GOLD);
+            for (SubQueue subQueue : queue.getSubQueues()) {
+                final int size = subQueue.players().size();
+                final String wait = size == 0 ? "" : ", last player waits " + Messages.formatEta(queue.eta(subQueue, size - 1));
+                status = status.appendNewline().append(statusLine(subQueue.name(), size + " (" + Math.round(throughput.share(subQueue) * 100) + "% of sends" + wait + ")"));
+            }
+
+            return status
+                .appendNewline().append(statusLine("Paused", String.valueOf(queue.paused())))
+                .appendNewline().append(statusLine("In flight", queue.inFlight() + "/" + rate.window() + " (max " + rate.maxWindow() + ")"))
+                .appendNewline().append(statusLine("Send rate", throughput.sendsPerMinute() == -1 ? "unknown" : String.format(Locale.ROOT, "%.1f players/min", throughput.sendsPerMinute())))
+                .appendNewline().append(statusLine("Connect latency", rate.averageLatency() == -1 ? "unknown" : rate.averageLatency() + "ms"))
+                .appendNewline().append(statusLine("Sends", rate.successes() + " succeeded, " + rate.failures() + " failed, " + rate.decreases() + " slowdowns"))
+                .appendNewline().append(statusLine("Failed attempts", String.valueOf(queue.failedAttempts())));
+        }).thenAccept(ctx.getSource()::sendMessage);
+
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private static Component statusLine(final String key, final String value) {
+        return Component.text(key + ": ", NamedTextColor.YELLOW).append(Component.text(value, NamedTextColor.GREEN));
+    }
+
     private static int sendPosition(final CommandContext<CommandSource> ctx) {
-        final QueuedPlayer queuedPlayer;
-        if (!(ctx.getSource() instanceof Player player) || !(queuedPlayer = QueuePlugin.instance().queued(player)).isInQueue()) {
-            ctx.getSource().sendMessage(Component.text("You are not in a queue.", NamedTextColor.RED));
+        final Messages messages = QueuePlugin.instance().config().messages();
+        if (!(ctx.getSource() instanceof Player player)) {
+            ctx.getSource().sendMessage(messages.notInQueue().render());
             return Command.SINGLE_SUCCESS;
         }
 
-        player.sendMessage(Component.text("You are currently in position ", NamedTextColor.YELLOW).append(Component.text(queuedPlayer.position() + 1, NamedTextColor.GREEN).append(Component.text(" of ", NamedTextColor.YELLOW).append(Component.text(queuedPlayer.queue().getSubQueue(queuedPlayer).players().size(), NamedTextColor.GREEN).append(Component.text(" for " + queuedPlayer.queue().getServerFormatted(), NamedTextColor.YELLOW))))));
-        if (queuedPlayer.queue().paused()) {
-            queuedPlayer.queue().sendPausedQueueMessage(queuedPlayer);
+        // Replies go through the queued player, so that they arrive after any queue messages that are still buffered.
+        final QueuedPlayer queuedPlayer = QueuePlugin.instance().queued(player);
+        if (!queuedPlayer.isInQueue()) {
+            queuedPlayer.sendMessage(messages.notInQueue().render());
+            return Command.SINGLE_SUCCESS;
         }
 
+        // Positions are read from within the queue's mailbox, so that they are consistent with the queue.
+        final Queue queue = queuedPlayer.queue();
+        if (queue == null) {
+            queuedPlayer.sendMessage(messages.notInQueue().render());
+            return Command.SINGLE_SUCCESS;
+        }
+
+        queue.execute(() -> {
+            final SubQueue subQueue = queue.getSubQueue(queuedPlayer);
+            final int position = subQueue.playerPosition(queuedPlayer);
+            if (position == -1) {
+                queuedPlayer.sendMessage(messages.notInQueue().render());
+                return;
+            }
+
+            queuedPlayer.sendMessage(queue.messages().position().render(position + 1, subQueue.players().size(), Messages.formatEta(queue.eta(subQueue, position))));
+            queue.notifiedPosition(subQueue, queuedPlayer, position);
+            if (queue.paused()) {
+                queue.sendPausedQueueMessage(queuedPlayer);
+            }
+        });
+
         return Command.SINGLE_SUCCESS;
     }
 }
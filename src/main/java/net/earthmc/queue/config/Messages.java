@@ -0,0 +1,127 @@
+package net.earthmc.queue.config;
+
+import com.moandjiezana.toml.Toml;
+import net.earthmc.queue.object.MessageTemplate;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * The configurable messages sent to players, parsed once from the {@code [messages]} table of the config.
+ * <p>
+ * Queues {@link #bind(String) bind} the catalog to their server, so that the server name is part of the static parts of each message.
+ */
+@NullMarked
+public record Messages(
+        MessageTemplate joined,
+        MessageTemplate joinedPosition,
+        MessageTemplate position,
+        MessageTemplate alreadyQueued,
+        MessageTemplate removedForOtherQueue,
+        MessageTemplate notInQueue,
+        MessageTemplate paused,
+        MessageTemplate pausedReason,
+        MessageTemplate pausedAfterFailures,
+        MessageTemplate sending,
+        MessageTemplate sent,
+        MessageTemplate sendFailed,
+        MessageTemplate requeueing,
+        MessageTemplate sendFailedReason,
+        MessageTemplate reasonInProgress,
+        MessageTemplate reasonRefused,
+        MessageTemplate reasonAlreadyConnected,
+        MessageTemplate reasonCancelled,
+        MessageTemplate invalidServer,
+        MessageTemplate alreadyConnected,
+        MessageTemplate display
+) {
+    private static @Nullable Messages defaults;
+
+    public static Messages load(@Nullable Toml config) {
+        return new Messages(
+                template(config, "joined", "<green>You have joined the queue for <server>.", "server"),
+                template(config, "joined-position", "<yellow>You are currently in position <green><position></green> of <green><size></green>. <gray>Estimated wait: <eta>", "server", "position", "size", "eta"),
+                template(config, "position", "<yellow>You are currently in position <green><position></green> of <green><size></green> for <server>. <gray>Estimated wait: <eta>", "server", "position", "size", "eta"),
+                template(config, "already-queued", "<red>You are already queued for this server.", "server"),
+                template(config, "removed-for-other-queue", "<red>You have been removed from the queue for <server>.", "server"),
+                template(config, "not-in-queue", "<red>You are not in a queue."),
+                template(config, "paused", "<gray>The queue you are currently in is paused.", "server"),
+                template(config, "paused-reason", "<gray>Reason: <i><reason></i>", "server", "reason"),
+                template(config, "paused-after-failures", "<red>Queue is paused for 30 seconds as the target server refused the last 5 players.", "server"),
+                template(config, "sending", "<green>You are being sent to <server>...", "server"),
+                template(config, "sent", "<green>You have been sent to <server>.", "server"),
+                template(config, "send-failed", "<red>Unable to connect you to <server>.", "server"),
+                template(config, "requeueing", "<red>Attempting to re-queue you...", "server"),
+                template(config, "send-failed-reason", "<red>Reason: <reason>", "server", "reason"),
+                template(config, "reason-in-progress", "<red>You are already being connected to this server!", "server"),
+                template(config, "reason-refused", "<red>The target server has refused your connection.", "server"),
+                template(config, "reason-already-connected", "<red>You are already connected to this server!", "server"),
+                template(config, "reason-cancelled", "<red>Your connection has been cancelled unexpectedly.", "server"),
+                template(config, "invalid-server", "<red><server> is not a valid server.", "server"),
+                template(config, "already-connected", "<red>You are already connected to this server.", "server"),
+                template(config, "display", "<yellow>Position <green><position></green> of <green><size></green> for <server> <gray>(~<eta>)", "server", "position", "size", "eta")
+        );
+    }
+
+    /**
+     * @return The default messages, for when there is no config to load them from.
+     */
+    public static Messages defaults() {
+        if (defaults == null)
+            defaults = load(null);
+
+        return defaults;
+    }
+
+    private static MessageTemplate template(@Nullable Toml config, String key, String defaultMessage, String... placeholders) {
+        final String message = config == null ? defaultMessage : config.getString("messages." + key, defaultMessage);
+        return MessageTemplate.parse(message, placeholders);
+    }
+
+    /**
+     * Formats an estimated wait for the eta placeholder. The wait is rounded so that it doesn't change every second, which keeps the
+     * live position display from having to be updated for every player on every refresh.
+     */
+    public static String formatEta(Optional<Duration> eta) {
+        if (eta.isEmpty())
+            return "unknown";
+
+        final long seconds = eta.get().toSeconds();
+        if (seconds < 60)
+            return Math.max(10, (seconds + 9) / 10 * 10) + "s";
+
+        final long minutes = (seconds + 59) / 60;
+        return minutes < 60 ? minutes + "m" : minutes / 60 + "h " + minutes % 60 + "m";
+    }
+
+    /**
+     * @return A copy of these messages with the server placeholder filled in.
+     */
+    public Messages bind(String server) {
+        return new Messages(
+                joined.bind("server", server),
+                joinedPosition.bind("server", server),
+                position.bind("server", server),
+                alreadyQueued.bind("server", server),
+                removedForOtherQueue.bind("server", server),
+                notInQueue,
+                paused.bind("server", server),
+                pausedReason.bind("server", server),
+                pausedAfterFailures.bind("server", server),
+                sending.bind("server", server),
+                sent.bind("server", server),
+                sendFailed.bind("server", server),
+                requeueing.bind("server", server),
+                sendFailedReason.bind("server", server),
+                reasonInProgress.bind("server", server),
+                reasonRefused.bind("server", server),
+                reasonAlreadyConnected.bind("server", server),
+                reasonCancelled.bind("server", server),
+                invalidServer,
+                alreadyConnected.bind("server", server),
+                display.bind("server", server)
+        );
+    }
+}
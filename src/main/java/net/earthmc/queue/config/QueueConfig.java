@@ -6,6 +6,7 @@ import net.earthmc.queue.Queue;
 import net.earthmc.queue.QueuePlugin;
 import net.earthmc.queue.QueuedPlayer;
 import net.earthmc.queue.SubQueue;
+import net.earthmc.queue.impl.local.IndexedSubQueue;
 import net.earthmc.queue.impl.local.LocalSubQueue;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
@@ -14,6 +15,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -32,6 +34,16 @@ public class QueueConfig {
     private List<Priority> priorities;
     private List<SubQueue> subQueues;
     private AutoQueueSettings autoQueueSettings;
+    private SendSettings sendSettings;
+    private NotificationSettings notificationSettings;
+    private DisplaySettings displaySettings;
+    private MetricsSettings metricsSettings;
+    private AuditSettings auditSettings;
+    private PoolSettings poolSettings;
+    private StorageExecutorSettings storageExecutorSettings;
+    private CacheSettings cacheSettings;
+    private Messages messages;
+    private String subQueueType;
     private static final String CONFIG_FILE_NAME = "config.toml";
 
     public QueueConfig(QueuePlugin plugin, Path pluginFolder) {
@@ -48,22 +60,90 @@ public class QueueConfig {
         subQueues = new ArrayList<>();
 
         plugin.setDebug(config.getBoolean("debug", false));
+        this.subQueueType = config.getString("subqueue-type", "indexed").toLowerCase(Locale.ROOT);
+        if (!subQueueType.equals("local") && !subQueueType.equals("indexed")) {
+            plugin.logger().warn("Unknown subqueue-type '{}', falling back to indexed.", subQueueType);
+            this.subQueueType = "indexed";
+        }
 
         Toml autoQueueConfig = config.getTable("autoqueue");
         this.autoQueueSettings = new AutoQueueSettings(
                 autoQueueConfig.getLong("delay"),
                 autoQueueConfig.getString("default-target"),
                 new HashSet<>(Arrays.asList(autoQueueConfig.getString("autoqueue-server").toLowerCase(Locale.ROOT).split(","))),
-                autoQueueConfig.getBoolean("insta-send", false)
+                autoQueueConfig.getBoolean("insta-send", false),
+                Duration.ofMillis(Math.max(0L, autoQueueConfig.getLong("data-load-deadline", 1000L)))
+        );
+
+        this.sendSettings = new SendSettings(
+                Duration.ofMillis(Math.max(0L, config.getLong("sending.min-send-interval", 500L))),
+                (int) Math.max(1L, config.getLong("sending.max-in-flight", 1L)),
+                Math.max(1.0, config.getDouble("sending.latency-tolerance", 2.0))
+        );
+
+        this.notificationSettings = new NotificationSettings(
+                (int) Math.max(1L, config.getLong("notifications.position-step", 10L)),
+                (int) Math.max(0L, config.getLong("notifications.position-percent", 5L)),
+                Duration.ofSeconds(Math.max(0L, config.getLong("notifications.min-interval", 30L))),
+                config.getBoolean("notifications.buffer-messages", true),
+                config.getBoolean("notifications.progress-messages", true)
+        );
+
+        final String displayMode = config.getString("display.mode", "none").toUpperCase(Locale.ROOT);
+        DisplayMode mode;
+        try {
+            mode = DisplayMode.valueOf(displayMode);
+        } catch (IllegalArgumentException e) {
+            plugin.logger().warn("Unknown display mode '{}', falling back to none.", displayMode.toLowerCase(Locale.ROOT));
+            mode = DisplayMode.NONE;
+        }
+
+        this.displaySettings = new DisplaySettings(
+                mode,
+                Duration.ofMillis(Math.max(50L, config.getLong("display.refresh-interval", 1000L)))
+        );
+
+        this.metricsSettings = new MetricsSettings(
+                config.getBoolean("metrics.enabled", false),
+                config.getString("metrics.address", "127.0.0.1"),
+                (int) Math.clamp(config.getLong("metrics.port", 9225L), 0L, 65535L)
+        );
+
+        this.auditSettings = new AuditSettings(
+                config.getBoolean("audit.enabled", false),
+                (int) Math.clamp(config.getLong("audit.buffer-size", 65536L), 1024L, 1L << 24),
+                Math.max(1L, config.getLong("audit.max-file-size", 10L)) * 1024 * 1024,
+                (int) Math.clamp(config.getLong("audit.max-files", 5L), 0L, 100L)
         );
 
+        this.poolSettings = new PoolSettings(
+                (int) Math.clamp(config.getLong("database.pool.max-size", 10L), 1L, 100L),
+                Duration.ofMillis(Math.max(250L, config.getLong("database.pool.connection-timeout", 5000L))),
+                Duration.ofSeconds(Math.max(10L, config.getLong("database.pool.idle-timeout", 600L))),
+                Duration.ofSeconds(Math.max(0L, config.getLong("database.pool.max-lifetime", 1800L))),
+                (int) Math.clamp(config.getLong("database.pool.statement-cache-size", 16L), 0L, 256L)
+        );
+
+        this.storageExecutorSettings = new StorageExecutorSettings(
+                (int) Math.clamp(config.getLong("database.executor.threads", 4L), 1L, 64L),
+                (int) Math.clamp(config.getLong("database.executor.queue-size", 1000L), 1L, 100_000L),
+                Duration.ofMillis(Math.max(1000L, config.getLong("database.executor.timeout", 10_000L)))
+        );
+
+        this.cacheSettings = new CacheSettings(
+                Math.clamp(config.getLong("database.cache.max-size", 10_000L), 0L, 1_000_000L),
+                Duration.ofSeconds(Math.max(1L, config.getLong("database.cache.expire-after", 1800L)))
+        );
+
+        this.messages = Messages.load(config);
+
         for (Toml priority : config.getTables("priority")) {
             String name = priority.getString("name", "none");
             long weight = priority.getLong("weight", 0L);
             Component message = MiniMessage.miniMessage().deserialize(priority.getString("message", ""));
 
             priorities.add(new Priority(name, Math.max((int) weight, 0), message));
-            QueuePlugin.debug("Added new priority with name " + name + ".");
+            QueuePlugin.debug("Added new priority with name {}.", name);
         }
 
         Collections.sort(priorities);
@@ -74,24 +154,24 @@ public class QueueConfig {
             long weight = subQueue.getLong("min-weight", 0L);
             long maxSends = subQueue.getLong("sends", 0L);
 
-            subQueues.add(new LocalSubQueue(name, (int) weight, (int) maxSends));
-            QueuePlugin.debug("Added new subqueue with name " + name + ".");
+            subQueues.add(createSubQueue(name, (int) weight, (int) maxSends));
+            QueuePlugin.debug("Added new subqueue with name {}.", name);
 
             if (weight == 0)
                 hasRegularQueue = true;
         }
 
         if (!hasRegularQueue)
-            subQueues.add(new LocalSubQueue("regular", 0, 1));
+            subQueues.add(createSubQueue("regular", 0, 1));
 
         Collections.sort(subQueues);
 
-        Map<SubQueue, Integer> ratios = new HashMap<>();
+        Map<String, Integer> ratios = new HashMap<>();
         for (SubQueue subQueue : this.subQueues)
-            ratios.put(subQueue, subQueue.maxSends);
+            ratios.put(subQueue.name(), subQueue.maxSends);
 
         for (Queue queue : plugin.queues().values())
-            queue.getSubQueueRatio().updateOptions(ratios);
+            queue.execute(() -> queue.getScheduler().updateMaxSends(ratios));
 
         return true;
     }
@@ -130,13 +210,19 @@ public class QueueConfig {
         List<SubQueue> newSubQueues = new ArrayList<>();
 
         for (SubQueue subQueue : this.subQueues)
-            newSubQueues.add(new LocalSubQueue(subQueue.name(), subQueue.weight(), subQueue.maxSends()));
+            newSubQueues.add(createSubQueue(subQueue.name(), subQueue.weight(), subQueue.maxSends()));
 
         Collections.sort(newSubQueues);
 
         return newSubQueues;
     }
 
+    private SubQueue createSubQueue(String name, int weight, int maxSends) {
+        return subQueueType.equals("local")
+                ? new LocalSubQueue(name, weight, maxSends)
+                : new IndexedSubQueue(name, weight, maxSends);
+    }
+
     public List<Priority> priorities() {
         return priorities;
     }
@@ -145,7 +231,74 @@ public class QueueConfig {
         return autoQueueSettings;
     }
 
-    public record AutoQueueSettings(long delay, String defaultTarget, Set<String> autoQueueServers, boolean instaSend) {}
+    /**
+     * @param dataLoadDeadline How long a player's initial server may wait for their data to load before they are sent to the default target.
+     */
+    public record AutoQueueSettings(long delay, String defaultTarget, Set<String> autoQueueServers, boolean instaSend, Duration dataLoadDeadline) {}
+
+    public SendSettings sendSettings() {
+        return sendSettings;
+    }
+
+    public record SendSettings(Duration minSendInterval, int maxInFlight, double latencyTolerance) {}
+
+    public NotificationSettings notificationSettings() {
+        return notificationSettings;
+    }
+
+    public record NotificationSettings(int positionStep, int positionPercent, Duration minInterval, boolean bufferMessages, boolean progressMessages) {}
+
+    public DisplaySettings displaySettings() {
+        return displaySettings;
+    }
+
+    public record DisplaySettings(DisplayMode mode, Duration refreshInterval) {}
+
+    public enum DisplayMode {
+        NONE,
+        BOSSBAR,
+        ACTIONBAR
+    }
+
+    public MetricsSettings metricsSettings() {
+        return metricsSettings;
+    }
+
+    public record MetricsSettings(boolean enabled, String address, int port) {}
+
+    public AuditSettings auditSettings() {
+        return auditSettings;
+    }
+
+    public record AuditSettings(boolean enabled, int bufferSize, long maxFileSize, int maxFiles) {}
+
+    public PoolSettings poolSettings() {
+        return poolSettings;
+    }
+
+    /**
+     * @param maxLifetime The time after which a connection is replaced, or zero to keep connections open for as long as they are valid.
+     */
+    public record PoolSettings(int maxSize, Duration connectionTimeout, Duration idleTimeout, Duration maxLifetime, int statementCacheSize) {}
+
+    public StorageExecutorSettings storageExecutorSettings() {
+        return storageExecutorSettings;
+    }
+
+    public record StorageExecutorSettings(int threads, int queueSize, Duration timeout) {}
+
+    public CacheSettings cacheSettings() {
+        return cacheSettings;
+    }
+
+    /**
+     * @param maxSize The amount of players to cache, or zero to disable the cache.
+     */
+    public record CacheSettings(long maxSize, Duration expireAfter) {}
+
+    public Messages messages() {
+        return messages;
+    }
 
     public String getStorageType() {
         return config.getString("database.type");
@@ -174,4 +327,18 @@ public class QueueConfig {
     public String getDatabaseFlags() {
         return config.getString("database.flags");
     }
+
+    /**
+     * @return The size in bytes after which log storage starts a new segment.
+     */
+    public long getLogSegmentSize() {
+        return Math.clamp(config.getLong("database.log.segment-size", 16L), 1L, 1024L) * 1024 * 1024;
+    }
+
+    /**
+     * @return The interval at which changed player data is written to storage.
+     */
+    public Duration getDatabaseFlushInterval() {
+        return Duration.ofSeconds(Math.max(1L, config.getLong("database.flush-interval", 5L)));
+    }
 }
@@ -0,0 +1,131 @@
+package net.earthmc.queue.impl.local;
+
+import net.earthmc.queue.QueuePlugin;
+import net.earthmc.queue.QueuedPlayer;
+import net.earthmc.queue.SubQueue;
+import net.earthmc.queue.object.OrderStatisticTree;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A sub queue backed by an {@link OrderStatisticTree}, so that position lookups, inserts after another player and removals are O(log n)
+ * instead of walking the entire queue.
+ * <p>
+ * Players are weighted by their priority weight, which lets weighted inserts find their slot in O(log n) too. The weight is kept in the
+ * tree, so it is updated whenever the player's priority may have changed.
+ */
+@NullMarked
+public class IndexedSubQueue extends SubQueue {
+    private final OrderStatisticTree<QueuedPlayer> players = new OrderStatisticTree<>(player -> player.priority().weight);
+    private final Collection<QueuedPlayer> playersView = new AbstractCollection<>() {
+        @Override
+        public Iterator<QueuedPlayer> iterator() {
+            return players.iterator();
+        }
+
+        @Override
+        public int size() {
+            return players.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return players.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return players.contains(o);
+        }
+    };
+
+    public IndexedSubQueue(String name, int weight, int maxSends) {
+        super(name, weight, maxSends);
+    }
+
+    @Override
+    public Collection<QueuedPlayer> players() {
+        return playersView;
+    }
+
+    @Override
+    public Set<QueuedPlayer> playerSet() {
+        return players.values();
+    }
+
+    @Override
+    public void addPlayer(QueuedPlayer player) {
+        QueuePlugin.debug("Added player {} to subqueue {}", player.name(), this.name());
+        players.addLast(player);
+        progress().added(player);
+    }
+
+    @Override
+    public void addAfterPlayer(QueuedPlayer player, QueuedPlayer anchor) {
+        if (!players.addAfter(player, anchor)) {
+            throw new IllegalArgumentException("Provided anchor '" + anchor + "' is not part of subqueue " + this.name());
+        }
+
+        progress().added(player);
+        QueuePlugin.debug("Added player {} to subqueue {}", player.name(), this.name());
+    }
+
+    @Override
+    public int addByWeight(QueuedPlayer player, int weight, int maxPosition) {
+        final int position = Math.min(players.firstIndexWithWeightBelow(weight), Math.min(maxPosition, players.size()));
+        players.add(position, player);
+        progress().added(player);
+        if (QueuePlugin.isDebug())
+            QueuePlugin.debug("Added player " + player.name() + " to subqueue " + this.name() + " at position " + position);
+
+        return position;
+    }
+
+    @Override
+    public int playerPosition(QueuedPlayer player) {
+        return players.indexOf(player);
+    }
+
+    @Override
+    public void priorityChanged(QueuedPlayer player) {
+        players.reweigh(player);
+    }
+
+    @Override
+    public boolean removePlayer(QueuedPlayer player) {
+        if (players.remove(player)) {
+            QueuePlugin.debug("Removed player {} from subqueue {}", player.name(), this.name());
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public void addToTail(QueuedPlayer player) {
+        QueuePlugin.debug("Added player {} to the end of subqueue {}", player.name(), this.name());
+        players.addLast(player);
+        progress().added(player);
+    }
+
+    @Override
+    public void addToHead(QueuedPlayer player) {
+        QueuePlugin.debug("Added player {} to the head of subqueue {}", player.name(), this.name());
+        players.addFirst(player);
+        progress().added(player);
+    }
+
+    @Override
+    public QueuedPlayer removeFirst() throws NoSuchElementException {
+        final QueuedPlayer player = players.removeFirst();
+        QueuePlugin.debug("Removed player {} as the first player of subqueue {}", player.name(), this.name());
+        progress().departed();
+
+        return player;
+    }
+}
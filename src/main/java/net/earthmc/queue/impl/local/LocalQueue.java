@@ -6,8 +6,11 @@ import com.velocitypowered.api.proxy.server.RegisteredServer;
 import net.earthmc.queue.Queue;
 import net.earthmc.queue.QueuePlugin;
 import net.earthmc.queue.SubQueue;
+import net.earthmc.queue.audit.AuditEvent;
+import net.earthmc.queue.jfr.PauseEvent;
 import org.jspecify.annotations.Nullable;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.OptionalInt;
@@ -17,9 +20,9 @@ import java.util.concurrent.TimeUnit;
 public class LocalQueue extends Queue {
     private final Cache<UUID, Integer> rememberedPlayers = CacheBuilder.newBuilder().expireAfterWrite(15, TimeUnit.MINUTES).build();
 
-    private boolean paused;
-    private @Nullable String pauseReason;
-    private Instant unpauseTime = Instant.MAX;
+    private volatile boolean paused;
+    private volatile @Nullable String pauseReason;
+    private volatile Instant unpauseTime = Instant.MAX;
 
     public LocalQueue(RegisteredServer server, QueuePlugin plugin) {
         super(server, plugin, plugin.config().newSubQueues());
@@ -39,13 +42,24 @@ public class LocalQueue extends Queue {
 
     @Override
     public void pause(Instant unpauseTime, @Nullable String reason) {
+        if (!this.paused)
+            metrics().pauses().increment();
+
         this.paused = true;
         this.unpauseTime = unpauseTime;
         this.pauseReason = reason;
+
+        audit(AuditEvent.PAUSE, null, null);
+        PauseEvent.emit(getServerFormatted(), true, reason, unpauseTime.equals(Instant.MAX) ? -1 : Duration.between(Instant.now(), unpauseTime).toMillis());
     }
 
     @Override
     public void unpause() {
+        if (this.paused) {
+            audit(AuditEvent.UNPAUSE, null, null);
+            PauseEvent.emit(getServerFormatted(), false, null, 0);
+        }
+
         this.paused = false;
         this.pauseReason = null;
         this.unpauseTime = Instant.MAX;
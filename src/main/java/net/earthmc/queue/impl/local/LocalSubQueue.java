@@ -3,17 +3,25 @@ package net.earthmc.queue.impl.local;
 import net.earthmc.queue.QueuePlugin;
 import net.earthmc.queue.QueuedPlayer;
 import net.earthmc.queue.SubQueue;
+import net.earthmc.queue.object.TicketIndex;
 import org.jspecify.annotations.NullMarked;
 
 import java.util.Deque;
 import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * A sub queue backed by a linked list. Positions are looked up through a {@link TicketIndex} rather than by walking the list.
+ * <p>
+ * Weighted inserts still walk the list from the head, so they cost O(position). {@link IndexedSubQueue} is the default for that reason,
+ * this implementation is only used when {@code subqueue-type} is set to {@code local}.
+ */
 @NullMarked
 public class LocalSubQueue extends SubQueue {
     private final LinkedList<QueuedPlayer> players = new LinkedList<>();
-    private final Set<QueuedPlayer> playerSet = ConcurrentHashMap.newKeySet();
+    private final TicketIndex<QueuedPlayer> tickets = new TicketIndex<>();
 
     public LocalSubQueue(String name, int weight, int maxSends) {
         super(name, weight, maxSends);
@@ -26,23 +34,91 @@ public class LocalSubQueue extends SubQueue {
 
     @Override
     public Set<QueuedPlayer> playerSet() {
-        return playerSet;
+        return tickets.values();
+    }
+
+    @Override
+    public void addPlayer(QueuedPlayer player) {
+        QueuePlugin.debug("Added player {} to subqueue {}", player.name(), this.name());
+        tickets.addLast(player);
+        players.addLast(player);
+        progress().added(player);
     }
 
     @Override
     public void addAfterPlayer(QueuedPlayer player, QueuedPlayer anchor) {
-        final int index = players.indexOf(anchor);
+        final int index = tickets.position(anchor);
         if (index == -1) {
             throw new IllegalArgumentException("Provided anchor '" + anchor + "' is not part of subqueue " + this.name());
         }
 
+        tickets.add(index + 1, player);
         players.add(index + 1, player);
-        playerSet.add(player);
-        QueuePlugin.debug("Added player " + player.name() + " to subqueue " + this.name());
+        progress().added(player);
+        QueuePlugin.debug("Added player {} to subqueue {}", player.name(), this.name());
+    }
+
+    @Override
+    public int addByWeight(QueuedPlayer player, int weight, int maxPosition) {
+        // Find the insertion point and insert in a single pass, rather than finding an anchor and looking it up again.
+        final ListIterator<QueuedPlayer> iterator = players.listIterator();
+        while (iterator.hasNext() && iterator.nextIndex() < maxPosition) {
+            if (weight > iterator.next().priority().weight) {
+                iterator.previous();
+                break;
+            }
+        }
+
+        final int position = iterator.nextIndex();
+        iterator.add(player);
+        tickets.add(position, player);
+        progress().added(player);
+
+        if (QueuePlugin.isDebug())
+            QueuePlugin.debug("Added player " + player.name() + " to subqueue " + this.name() + " at position " + position);
+
+        return position;
     }
 
     @Override
     public int playerPosition(QueuedPlayer player) {
-        return players.indexOf(player);
+        return tickets.position(player);
+    }
+
+    @Override
+    public boolean removePlayer(QueuedPlayer player) {
+        if (tickets.remove(player)) {
+            QueuePlugin.debug("Removed player {} from subqueue {}", player.name(), this.name());
+            players.remove(player);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public void addToTail(QueuedPlayer player) {
+        QueuePlugin.debug("Added player {} to the end of subqueue {}", player.name(), this.name());
+        tickets.addLast(player);
+        players.addLast(player);
+        progress().added(player);
+    }
+
+    @Override
+    public void addToHead(QueuedPlayer player) {
+        QueuePlugin.debug("Added player {} to the head of subqueue {}", player.name(), this.name());
+        tickets.addFirst(player);
+        players.addFirst(player);
+        progress().added(player);
+    }
+
+    @Override
+    public QueuedPlayer removeFirst() throws NoSuchElementException {
+        final QueuedPlayer player = players.removeFirst();
+        QueuePlugin.debug("Removed player {} as the first player of subqueue {}", player.name(), this.name());
+        tickets.remove(player);
+        progress().departed();
+
+        return player;
     }
 }
@@ -0,0 +1,28 @@
+package net.earthmc.queue.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("net.earthmc.queue.Enqueue")
+@Label("Enqueue")
+@Description("A player joined a queue.")
+public class EnqueueEvent extends QueueEvent {
+    @Label("Player")
+    String player;
+
+    @Label("Position")
+    int position;
+
+    public static void emit(String queue, String subQueue, String player, int position) {
+        final EnqueueEvent event = new EnqueueEvent();
+        if (!event.isEnabled())
+            return;
+
+        event.queue = queue;
+        event.subQueue = subQueue;
+        event.player = player;
+        event.position = position;
+        event.commit();
+    }
+}
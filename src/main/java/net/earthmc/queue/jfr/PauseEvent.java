@@ -0,0 +1,41 @@
+package net.earthmc.queue.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import org.jspecify.annotations.Nullable;
+
+@Name("net.earthmc.queue.Pause")
+@Label("Pause")
+@Description("A queue was paused or unpaused.")
+@Category({"Queue"})
+public class PauseEvent extends Event {
+    @Label("Queue")
+    String queue;
+
+    @Label("Paused")
+    boolean paused;
+
+    @Label("Reason")
+    String reason;
+
+    @Label("Pause Duration")
+    @Description("How long the queue is paused for, or -1 if it is paused until it is unpaused manually.")
+    @Timespan(Timespan.MILLISECONDS)
+    long pauseDuration;
+
+    public static void emit(String queue, boolean paused, @Nullable String reason, long pauseDurationMillis) {
+        final PauseEvent event = new PauseEvent();
+        if (!event.isEnabled())
+            return;
+
+        event.queue = queue;
+        event.paused = paused;
+        event.reason = reason;
+        event.pauseDuration = pauseDurationMillis;
+        event.commit();
+    }
+}
@@ -0,0 +1,29 @@
+package net.earthmc.queue.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("net.earthmc.queue.ProgressBroadcast")
+@Label("Progress Broadcast")
+@Description("A queue sent the players in a sub queue their new position.")
+public class ProgressBroadcastEvent extends QueueEvent {
+    @Label("Players")
+    int players;
+
+    @Label("Notified")
+    @Description("The amount of players whose position had changed enough to be sent a message.")
+    int notified;
+
+    public void finish(String queue, String subQueue, int players, int notified) {
+        end();
+        if (!shouldCommit())
+            return;
+
+        this.queue = queue;
+        this.subQueue = subQueue;
+        this.players = players;
+        this.notified = notified;
+        commit();
+    }
+}
@@ -0,0 +1,20 @@
+package net.earthmc.queue.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * The base of the flight recorder events of a queue.
+ * <p>
+ * Events are only filled in and committed when they are enabled in a recording. When recording is off, {@link #isEnabled()} is
+ * constant and the event objects never escape, so the JIT removes them along with the code that would fill them in.
+ */
+@Category({"Queue"})
+public abstract class QueueEvent extends Event {
+    @Label("Queue")
+    String queue;
+
+    @Label("Sub Queue")
+    String subQueue;
+}
@@ -0,0 +1,34 @@
+package net.earthmc.queue.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("net.earthmc.queue.Remove")
+@Label("Remove")
+@Description("A player left a queue before being sent.")
+public class RemoveEvent extends QueueEvent {
+    @Label("Player")
+    String player;
+
+    @Label("Position")
+    int position;
+
+    @Label("Waited")
+    @Timespan
+    long waited;
+
+    public static void emit(String queue, String subQueue, String player, int position, long waitedNanos) {
+        final RemoveEvent event = new RemoveEvent();
+        if (!event.isEnabled())
+            return;
+
+        event.queue = queue;
+        event.subQueue = subQueue;
+        event.player = player;
+        event.position = position;
+        event.waited = waitedNanos;
+        event.commit();
+    }
+}
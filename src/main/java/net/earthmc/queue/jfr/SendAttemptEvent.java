@@ -0,0 +1,40 @@
+package net.earthmc.queue.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("net.earthmc.queue.SendAttempt")
+@Label("Send Attempt")
+@Description("A queue started sending a player to its server.")
+public class SendAttemptEvent extends QueueEvent {
+    @Label("Player")
+    String player;
+
+    @Label("Waited")
+    @Timespan
+    long waited;
+
+    @Label("In Flight")
+    @Description("The amount of players that were already being sent.")
+    int inFlight;
+
+    @Label("Window")
+    @Description("The amount of players the queue was allowed to be sending at once.")
+    int window;
+
+    public static void emit(String queue, String subQueue, String player, long waitedNanos, int inFlight, int window) {
+        final SendAttemptEvent event = new SendAttemptEvent();
+        if (!event.isEnabled())
+            return;
+
+        event.queue = queue;
+        event.subQueue = subQueue;
+        event.player = player;
+        event.waited = waitedNanos;
+        event.inFlight = inFlight;
+        event.window = window;
+        event.commit();
+    }
+}
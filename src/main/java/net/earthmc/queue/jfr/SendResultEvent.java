@@ -0,0 +1,45 @@
+package net.earthmc.queue.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.jspecify.annotations.Nullable;
+
+@Name("net.earthmc.queue.SendResult")
+@Label("Send Result")
+@Description("A connection started by a queue completed, the duration of the event is the time it took to connect.")
+public class SendResultEvent extends QueueEvent {
+    @Label("Player")
+    String player;
+
+    @Label("Status")
+    String status;
+
+    @Label("Successful")
+    boolean successful;
+
+    /**
+     * @return A started event, or null if the event isn't enabled so that nothing has to be kept around until the connection completes.
+     */
+    public static @Nullable SendResultEvent start() {
+        final SendResultEvent event = new SendResultEvent();
+        if (!event.isEnabled())
+            return null;
+
+        event.begin();
+        return event;
+    }
+
+    public void finish(String queue, String subQueue, String player, String status, boolean successful) {
+        end();
+        if (!shouldCommit())
+            return;
+
+        this.queue = queue;
+        this.subQueue = subQueue;
+        this.player = player;
+        this.status = status;
+        this.successful = successful;
+        commit();
+    }
+}
@@ -0,0 +1,49 @@
+package net.earthmc.queue.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * The base of the flight recorder events of loading and saving player data, the duration of an event is the time the operation took.
+ */
+@Category({"Queue", "Storage"})
+public abstract class StorageEvent extends Event {
+    @Label("Storage")
+    String storage;
+
+    @Label("Player")
+    String player;
+
+    @Label("Players")
+    int players;
+
+    @Label("Successful")
+    boolean successful;
+
+    public void finish(String storage, String player, boolean successful) {
+        end();
+        if (!shouldCommit())
+            return;
+
+        this.storage = storage;
+        this.player = player;
+        this.players = 1;
+        this.successful = successful;
+        commit();
+    }
+
+    /**
+     * Finishes an event about a batch of players.
+     */
+    public void finish(String storage, int players, boolean successful) {
+        end();
+        if (!shouldCommit())
+            return;
+
+        this.storage = storage;
+        this.players = players;
+        this.successful = successful;
+        commit();
+    }
+}
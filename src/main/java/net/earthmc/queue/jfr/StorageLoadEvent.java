@@ -0,0 +1,10 @@
+package net.earthmc.queue.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("net.earthmc.queue.StorageLoad")
+@Label("Storage Load")
+@Description("A player's data was loaded from storage.")
+public class StorageLoadEvent extends StorageEvent {}
@@ -0,0 +1,10 @@
+package net.earthmc.queue.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("net.earthmc.queue.StorageSave")
+@Label("Storage Save")
+@Description("A batch of changed player data was saved to storage.")
+public class StorageSaveEvent extends StorageEvent {}
@@ -0,0 +1,24 @@
+package net.earthmc.queue.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("net.earthmc.queue.SubQueueSelection")
+@Label("Sub Queue Selection")
+@Description("A queue picked the sub queue to send its next player from.")
+public class SubQueueSelectionEvent extends QueueEvent {
+    @Label("Sub Queue Size")
+    int size;
+
+    public static void emit(String queue, String subQueue, int size) {
+        final SubQueueSelectionEvent event = new SubQueueSelectionEvent();
+        if (!event.isEnabled())
+            return;
+
+        event.queue = queue;
+        event.subQueue = subQueue;
+        event.size = size;
+        event.commit();
+    }
+}
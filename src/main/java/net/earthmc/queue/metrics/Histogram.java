@@ -0,0 +1,78 @@
+package net.earthmc.queue.metrics;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations with one bucket per power of two milliseconds, from 1 ms up to about 4.5 hours.
+ * <p>
+ * Recording a value finds its bucket from the position of its highest bit and increments it, so it takes constant time and
+ * allocates nothing no matter how many values are recorded. The relative error of a bucket is at most a factor of two, which is
+ * plenty to tell a 50 ms connect from a 2 second one, or a 5 minute wait from a 40 minute one.
+ */
+@NullMarked
+public class Histogram {
+    // The upper bound of the last bucket is 2^MAX_EXPONENT milliseconds, anything above that is only counted in the +Inf bucket.
+    static final int MAX_EXPONENT = 24;
+
+    // Bucket i counts values of at most 2^i ms, the last bucket counts everything larger.
+    private final AtomicLongArray buckets = new AtomicLongArray(MAX_EXPONENT + 2);
+    private final LongAdder sumMillis = new LongAdder();
+
+    public void record(Duration duration) {
+        recordMillis(duration.toMillis());
+    }
+
+    public void recordNanos(long nanos) {
+        recordMillis(TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    /**
+     * Records the time passed since the given time, as returned by {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        recordNanos(System.nanoTime() - startNanos);
+    }
+
+    public void recordMillis(long millis) {
+        final long value = Math.max(0, millis);
+        buckets.incrementAndGet(bucket(value));
+        sumMillis.add(value);
+    }
+
+    static int bucket(long millis) {
+        if (millis <= 1)
+            return 0;
+
+        // The smallest i for which millis <= 2^i.
+        final int exponent = Long.SIZE - Long.numberOfLeadingZeros(millis - 1);
+        return Math.min(exponent, MAX_EXPONENT + 1);
+    }
+
+    /**
+     * @return The amount of values recorded in the given bucket, not including smaller buckets.
+     */
+    long bucketCount(int bucket) {
+        return buckets.get(bucket);
+    }
+
+    int bucketCount() {
+        return buckets.length();
+    }
+
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < buckets.length(); i++)
+            count += buckets.get(i);
+
+        return count;
+    }
+
+    public long sumMillis() {
+        return sumMillis.sum();
+    }
+}
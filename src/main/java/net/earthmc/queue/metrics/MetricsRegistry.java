@@ -0,0 +1,134 @@
+package net.earthmc.queue.metrics;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Holds all metrics of the plugin, and writes them in the Prometheus text format.
+ * <p>
+ * Metrics are registered by name and labels, registering the same name and labels twice returns the existing metric. Labels are
+ * passed as alternating names and values, for example {@code counter("queue_sends_total", "...", "queue", "towny")}.
+ */
+@NullMarked
+public class MetricsRegistry {
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    public Counter counter(String name, String help, String... labels) {
+        return register(name, help, "counter", labels, Counter::new);
+    }
+
+    public Histogram histogram(String name, String help, String... labels) {
+        return register(name, help, "histogram", labels, Histogram::new);
+    }
+
+    /**
+     * Registers a value that is read every time the metrics are written, such as the size of a queue.
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        register(name, help, "gauge", labels, () -> value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <M> M register(String name, String help, String type, String[] labels, Supplier<M> factory) {
+        if (labels.length % 2 != 0)
+            throw new IllegalArgumentException("Labels of " + name + " must be pairs of names and values");
+
+        final Family family = families.computeIfAbsent(name, k -> new Family(help, type, new LinkedHashMap<>()));
+        if (!family.type().equals(type))
+            throw new IllegalArgumentException(name + " is already registered as a " + family.type());
+
+        return (M) family.metrics().computeIfAbsent(formatLabels(labels), k -> factory.get());
+    }
+
+    /**
+     * @return All metrics in the Prometheus text exposition format.
+     */
+    public synchronized String scrape() {
+        final StringBuilder out = new StringBuilder();
+
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            final String name = entry.getKey();
+            final Family family = entry.getValue();
+            if (family.metrics().isEmpty())
+                continue;
+
+            out.append("# HELP ").append(name).append(' ').append(family.help()).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type()).append('\n');
+
+            for (Map.Entry<String, Object> metric : family.metrics().entrySet()) {
+                final String labels = metric.getKey();
+
+                switch (metric.getValue()) {
+                    case Counter counter -> sample(out, name, labels, counter.get());
+                    case DoubleSupplier gauge -> sample(out, name, labels, gauge.getAsDouble());
+                    case Histogram histogram -> writeHistogram(out, name, labels, histogram);
+                    default -> throw new IllegalStateException("Unknown metric type " + metric.getValue().getClass());
+                }
+            }
+        }
+
+        return out.toString();
+    }
+
+    private static void writeHistogram(StringBuilder out, String name, String labels, Histogram histogram) {
+        long cumulative = 0;
+        for (int i = 0; i < histogram.bucketCount(); i++) {
+            cumulative += histogram.bucketCount(i);
+
+            final String le = i > Histogram.MAX_EXPONENT ? "+Inf" : formatDouble((1L << i) / 1000d);
+            sample(out, name + "_bucket", withLabel(labels, "le", le), cumulative);
+        }
+
+        sample(out, name + "_sum", labels, histogram.sumMillis() / 1000d);
+        sample(out, name + "_count", labels, cumulative);
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append(labels).append(' ').append(formatDouble(value)).append('\n');
+    }
+
+    private static String formatDouble(double value) {
+        if (Double.isNaN(value))
+            return "NaN";
+        if (Double.isInfinite(value))
+            return value > 0 ? "+Inf" : "-Inf";
+        if (value == Math.rint(value) && Math.abs(value) < 1e15)
+            return String.valueOf((long) value);
+
+        return String.valueOf(value);
+    }
+
+    private static String formatLabels(String[] labels) {
+        if (labels.length == 0)
+            return "";
+
+        final StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0)
+                builder.append(',');
+
+            builder.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+
+        return builder.append('}').toString();
+    }
+
+    private static String withLabel(String labels, String name, String value) {
+        final String label = name + "=\"" + value + "\"";
+        return labels.isEmpty() ? "{" + label + "}" : labels.substring(0, labels.length() - 1) + "," + label + "}";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private record Family(String help, String type, Map<String, Object> metrics) {}
+}
@@ -0,0 +1,81 @@
+package net.earthmc.queue.metrics;
+
+import com.velocitypowered.api.proxy.ConnectionRequestBuilder;
+import net.earthmc.queue.Queue;
+import net.earthmc.queue.SubQueue;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The metrics of a single queue, labelled with the name of the queue.
+ */
+@NullMarked
+public class QueueMetrics {
+    private final Counter enqueues;
+    private final Counter leaves;
+    private final Counter sends;
+    private final Counter pauses;
+    private final Counter connectExceptions;
+    private final Map<ConnectionRequestBuilder.Status, Counter> connectFailures = new EnumMap<>(ConnectionRequestBuilder.Status.class);
+    private final Histogram waitTime;
+    private final Histogram connectLatency;
+
+    public QueueMetrics(MetricsRegistry registry, Queue queue, String name) {
+        this.enqueues = registry.counter("queue_enqueues_total", "Players that joined the queue.", "queue", name);
+        this.leaves = registry.counter("queue_leaves_total", "Players that left the queue before being sent.", "queue", name);
+        this.sends = registry.counter("queue_sends_total", "Players that were successfully sent to the server.", "queue", name);
+        this.pauses = registry.counter("queue_pauses_total", "Times the queue has been paused.", "queue", name);
+
+        final String failuresHelp = "Connections to the server that did not succeed, by status.";
+        this.connectExceptions = registry.counter("queue_connect_failures_total", failuresHelp, "queue", name, "status", "EXCEPTION");
+        for (ConnectionRequestBuilder.Status status : ConnectionRequestBuilder.Status.values())
+            if (status != ConnectionRequestBuilder.Status.SUCCESS)
+                connectFailures.put(status, registry.counter("queue_connect_failures_total", failuresHelp, "queue", name, "status", status.name()));
+
+        this.waitTime = registry.histogram("queue_wait_seconds", "Time between a player joining the queue and being sent.", "queue", name);
+        this.connectLatency = registry.histogram("queue_connect_seconds", "Time it took for connections to the server to complete.", "queue", name);
+
+        // Gauges read the queue's snapshot, so scraping never has to wait for the queue's mailbox.
+        for (SubQueue subQueue : queue.getSubQueues()) {
+            final String subQueueName = subQueue.name();
+            registry.gauge("queue_players", "Players waiting in each sub queue.", () -> queue.snapshot().subQueueSizes().getOrDefault(subQueueName, 0), "queue", name, "sub_queue", subQueueName);
+        }
+
+        registry.gauge("queue_in_flight", "Players currently being connected to the server.", () -> queue.snapshot().inFlight(), "queue", name);
+        registry.gauge("queue_max_players", "The maximum amount of players on the server.", queue::maxPlayers, "queue", name);
+    }
+
+    public Counter enqueues() {
+        return enqueues;
+    }
+
+    public Counter leaves() {
+        return leaves;
+    }
+
+    public Counter sends() {
+        return sends;
+    }
+
+    public Counter pauses() {
+        return pauses;
+    }
+
+    /**
+     * @return The counter for connections that completed with the given status, or threw an exception if the status is null.
+     */
+    public Counter connectFailures(ConnectionRequestBuilder.@Nullable Status status) {
+        return status == null ? connectExceptions : connectFailures.getOrDefault(status, connectExceptions);
+    }
+
+    public Histogram waitTime() {
+        return waitTime;
+    }
+
+    public Histogram connectLatency() {
+        return connectLatency;
+    }
+}
@@ -0,0 +1,143 @@
+package net.earthmc.queue.metrics;
+
+import net.earthmc.queue.storage.ConnectionPool;
+import net.earthmc.queue.storage.PlayerDataCache;
+import net.earthmc.queue.storage.StorageExecutor;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * The metrics of loading and saving player data.
+ */
+@NullMarked
+public class StorageMetrics {
+    private final Histogram loadTime;
+    private final Histogram saveTime;
+    private final Counter saves;
+    private final Counter loadDeadlineMisses;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Counter cacheEvictions;
+    private final Histogram poolAcquireTime;
+    private final Counter poolTimeouts;
+    private final Counter poolConnectionsCreated;
+    private final Histogram executorWaitTime;
+    private final Counter executorRejections;
+    private final Counter executorTimeouts;
+    // The pool of the current storage, the storage and its pool are replaced when the plugin is reloaded.
+    private volatile @Nullable ConnectionPool pool;
+    private volatile @Nullable StorageExecutor executor;
+    private volatile @Nullable PlayerDataCache cache;
+
+    public StorageMetrics(MetricsRegistry registry) {
+        this.loadTime = registry.histogram("queue_storage_load_seconds", "Time it took to load a player's data.");
+        this.saveTime = registry.histogram("queue_storage_save_seconds", "Time it took to save a batch of player data.");
+        this.saves = registry.counter("queue_storage_saves_total", "Players whose changed data has been saved.");
+        this.loadDeadlineMisses = registry.counter("queue_storage_load_deadline_misses_total", "Players whose initial server was chosen before their data had loaded.");
+        this.poolAcquireTime = registry.histogram("queue_storage_pool_acquire_seconds", "Time spent waiting for a database connection.");
+        this.poolTimeouts = registry.counter("queue_storage_pool_timeouts_total", "Times no database connection became available in time.");
+        this.poolConnectionsCreated = registry.counter("queue_storage_pool_connections_created_total", "Database connections that have been opened.");
+
+        final String connectionsHelp = "Open database connections, by whether they are borrowed.";
+        registry.gauge("queue_storage_pool_connections", connectionsHelp, () -> poolValue(ConnectionPool::active), "state", "active");
+        registry.gauge("queue_storage_pool_connections", connectionsHelp, () -> poolValue(ConnectionPool::idle), "state", "idle");
+        registry.gauge("queue_storage_pool_pending", "Threads waiting for a database connection.", () -> poolValue(ConnectionPool::pending));
+        registry.gauge("queue_storage_pool_max_connections", "The maximum amount of database connections.", () -> poolValue(ConnectionPool::maxSize));
+
+        this.executorWaitTime = registry.histogram("queue_storage_queue_wait_seconds", "Time storage operations waited for a storage thread.");
+        this.executorRejections = registry.counter("queue_storage_rejected_total", "Storage operations refused because the storage queue was full.");
+        this.executorTimeouts = registry.counter("queue_storage_timeouts_total", "Storage operations that did not complete in time.");
+        registry.gauge("queue_storage_queued", "Storage operations waiting for a storage thread.", () -> executorValue(StorageExecutor::queued));
+        registry.gauge("queue_storage_active", "Storage threads that are running an operation.", () -> executorValue(StorageExecutor::active));
+
+        final String cacheHelp = "Loads of player data, by whether the data was in the cache.";
+        this.cacheHits = registry.counter("queue_storage_cache_requests_total", cacheHelp, "result", "hit");
+        this.cacheMisses = registry.counter("queue_storage_cache_requests_total", cacheHelp, "result", "miss");
+        this.cacheEvictions = registry.counter("queue_storage_cache_evictions_total", "Players removed from the cache because it was full or their entry expired.");
+        registry.gauge("queue_storage_cache_size", "Players whose data is cached.", () -> {
+            final PlayerDataCache cache = this.cache;
+            return cache == null ? 0 : cache.size();
+        });
+    }
+
+    public Histogram loadTime() {
+        return loadTime;
+    }
+
+    public Histogram saveTime() {
+        return saveTime;
+    }
+
+    public Counter saves() {
+        return saves;
+    }
+
+    public Counter loadDeadlineMisses() {
+        return loadDeadlineMisses;
+    }
+
+    public Counter cacheRequests(boolean hit) {
+        return hit ? cacheHits : cacheMisses;
+    }
+
+    public Counter cacheEvictions() {
+        return cacheEvictions;
+    }
+
+    public Histogram poolAcquireTime() {
+        return poolAcquireTime;
+    }
+
+    public Counter poolTimeouts() {
+        return poolTimeouts;
+    }
+
+    public Counter poolConnectionsCreated() {
+        return poolConnectionsCreated;
+    }
+
+    public Histogram executorWaitTime() {
+        return executorWaitTime;
+    }
+
+    public Counter executorRejections() {
+        return executorRejections;
+    }
+
+    public Counter executorTimeouts() {
+        return executorTimeouts;
+    }
+
+    private int poolValue(ToIntFunction<ConnectionPool> value) {
+        final ConnectionPool pool = this.pool;
+        return pool == null ? 0 : value.applyAsInt(pool);
+    }
+
+    /**
+     * Sets the connection pool that the pool gauges report on.
+     */
+    public void pool(@Nullable ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    private int executorValue(ToIntFunction<StorageExecutor> value) {
+        final StorageExecutor executor = this.executor;
+        return executor == null ? 0 : value.applyAsInt(executor);
+    }
+
+    /**
+     * Sets the storage executor that the queue gauges report on.
+     */
+    public void executor(@Nullable StorageExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the player data cache that the cache size gauge reports on.
+     */
+    public void cache(@Nullable PlayerDataCache cache) {
+        this.cache = cache;
+    }
+}
@@ -0,0 +1,89 @@
+package net.earthmc.queue.object;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A single writer mailbox, tasks can be submitted from any thread and are run one at a time in submission order.
+ * <p>
+ * Submitting is lock free, tasks are pushed onto a {@link ConcurrentLinkedQueue} and at most one drain of the mailbox is
+ * scheduled on the executor at any time. Everything run by the mailbox therefore has a single writer, without the tasks
+ * themselves having to take any locks.
+ */
+@NullMarked
+public class Mailbox implements Executor {
+    // The maximum amount of tasks to run before giving the executor thread back, so that one busy mailbox can't hog it.
+    static final int MAX_TASKS_PER_DRAIN = 1024;
+
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Executor executor;
+    private final Consumer<Throwable> exceptionHandler;
+
+    /**
+     * @param executor The executor to drain the mailbox on.
+     * @param exceptionHandler Called with any exception thrown by a task, the mailbox keeps draining afterwards.
+     */
+    public Mailbox(Executor executor, Consumer<Throwable> exceptionHandler) {
+        this.executor = executor;
+        this.exceptionHandler = exceptionHandler;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        scheduleDrain();
+    }
+
+    /**
+     * Runs the given supplier in the mailbox.
+     *
+     * @return A future completed with the value of the supplier, or exceptionally if it threw.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> supplier) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                future.complete(supplier.get());
+            } catch (Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+        });
+
+        return future;
+    }
+
+    public int pendingTasks() {
+        return tasks.size();
+    }
+
+    private void scheduleDrain() {
+        if (scheduled.compareAndSet(false, true))
+            executor.execute(this::drain);
+    }
+
+    private void drain() {
+        try {
+            Runnable task;
+            for (int i = 0; i < MAX_TASKS_PER_DRAIN && (task = tasks.poll()) != null; i++) {
+                try {
+                    task.run();
+                } catch (Throwable throwable) {
+                    exceptionHandler.accept(throwable);
+                }
+            }
+        } finally {
+            scheduled.set(false);
+
+            // Tasks may have been added after the last poll but before the flag was reset, pick those up here.
+            if (!tasks.isEmpty())
+                scheduleDrain();
+        }
+    }
+}
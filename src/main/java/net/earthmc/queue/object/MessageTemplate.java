@@ -0,0 +1,146 @@
+package net.earthmc.queue.object;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.ComponentLike;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A MiniMessage message with placeholders that is parsed once, and rendered by filling in the placeholders.
+ * <p>
+ * The parsed message is flattened into a list of parts that each carry their full style. Static parts are kept as finished components
+ * and reused for every render, so rendering only creates a component for each placeholder and one to hold the parts. Placeholders that
+ * are the same for every render, such as the name of a queue's server, can be {@link #bind(String, Object) bound} ahead of time.
+ * <p>
+ * Placeholder values other than components are inserted as plain text, so values such as a pause reason can't inject formatting.
+ */
+@NullMarked
+public final class MessageTemplate {
+    // Private use character used to mark where placeholders were in the parsed message.
+    private static final char MARKER = '\uE000';
+
+    private final String[] placeholders;
+    private final Component[] parts;
+    // The index of the placeholder in each part, or -1 for static parts.
+    private final int[] slots;
+    private final Style[] slotStyles;
+    // The rendered message if there are no placeholders left.
+    private final Component rendered;
+
+    private MessageTemplate(String[] placeholders, Component[] parts, int[] slots, Style[] slotStyles) {
+        this.placeholders = placeholders;
+        this.parts = parts;
+        this.slots = slots;
+        this.slotStyles = slotStyles;
+        this.rendered = placeholders.length == 0 ? build(parts) : Component.empty();
+    }
+
+    /**
+     * @param miniMessage The message in MiniMessage format.
+     * @param placeholders The names of the placeholders in the message, in the order their values are passed to {@link #render(Object...)}.
+     */
+    public static MessageTemplate parse(String miniMessage, String... placeholders) {
+        final TagResolver.Builder resolver = TagResolver.builder();
+        for (int i = 0; i < placeholders.length; i++)
+            resolver.resolver(Placeholder.component(placeholders[i], Component.text(String.valueOf(MARKER) + i)));
+
+        final List<Component> parts = new ArrayList<>();
+        final List<Integer> slots = new ArrayList<>();
+        final List<Style> slotStyles = new ArrayList<>();
+        flatten(MiniMessage.miniMessage().deserialize(miniMessage, resolver.build()), Style.empty(), parts, slots, slotStyles);
+
+        return new MessageTemplate(placeholders.clone(), parts.toArray(new Component[0]), slots.stream().mapToInt(Integer::intValue).toArray(), slotStyles.toArray(new Style[0]));
+    }
+
+    private static void flatten(Component component, Style parentStyle, List<Component> parts, List<Integer> slots, List<Style> slotStyles) {
+        final Style style = component.style().merge(parentStyle, Style.Merge.Strategy.IF_ABSENT_ON_TARGET);
+
+        if (!(component instanceof TextComponent text)) {
+            // Keep other kinds of components, such as translatables, as they are.
+            parts.add(component.style(style));
+            slots.add(-1);
+            slotStyles.add(style);
+            return;
+        }
+
+        final String content = text.content();
+        if (content.length() > 1 && content.charAt(0) == MARKER) {
+            parts.add(Component.empty());
+            slots.add(Integer.parseInt(content.substring(1)));
+            slotStyles.add(style);
+        } else if (!content.isEmpty()) {
+            parts.add(Component.text(content, style));
+            slots.add(-1);
+            slotStyles.add(style);
+        }
+
+        for (Component child : component.children())
+            flatten(child, style, parts, slots, slotStyles);
+    }
+
+    /**
+     * Fills in a placeholder for every future render, for values that never change such as the server of a queue.
+     *
+     * @return A new template without the given placeholder.
+     */
+    public MessageTemplate bind(String placeholder, Object value) {
+        final int index = Arrays.asList(placeholders).indexOf(placeholder);
+        if (index == -1)
+            return this;
+
+        final String[] newPlaceholders = new String[placeholders.length - 1];
+        for (int i = 0, j = 0; i < placeholders.length; i++)
+            if (i != index)
+                newPlaceholders[j++] = placeholders[i];
+
+        final Component[] newParts = parts.clone();
+        final int[] newSlots = slots.clone();
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == index) {
+                newParts[i] = value(value, slotStyles[i]);
+                newSlots[i] = -1;
+            } else if (slots[i] > index) {
+                newSlots[i]--;
+            }
+        }
+
+        return new MessageTemplate(newPlaceholders, newParts, newSlots, slotStyles);
+    }
+
+    /**
+     * @param values The values of the placeholders that haven't been bound, in the order they were declared in.
+     */
+    public Component render(Object... values) {
+        if (values.length != placeholders.length)
+            throw new IllegalArgumentException("Expected " + placeholders.length + " placeholder values " + Arrays.toString(placeholders) + ", but got " + values.length);
+
+        if (placeholders.length == 0)
+            return rendered;
+
+        final Component[] rendered = parts.clone();
+        for (int i = 0; i < slots.length; i++)
+            if (slots[i] != -1)
+                rendered[i] = value(values[slots[i]], slotStyles[i]);
+
+        return build(rendered);
+    }
+
+    private static Component value(Object value, Style style) {
+        // Components keep their own style, anything else is inserted as plain text.
+        return value instanceof ComponentLike component
+                ? component.asComponent().applyFallbackStyle(style)
+                : Component.text(String.valueOf(value), style);
+    }
+
+    private static Component build(ComponentLike[] parts) {
+        return parts.length == 1 ? parts[0].asComponent() : Component.textOfChildren(parts);
+    }
+}
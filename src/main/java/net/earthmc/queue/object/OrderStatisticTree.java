@@ -0,0 +1,377 @@
+package net.earthmc.queue.object;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToIntFunction;
+
+/**
+ * An ordered list of unique values backed by a size augmented treap, with a node handle kept per value.
+ * <p>
+ * Looking up the index of a value, inserting at an index or after another value and removing a value are all O(log n).
+ * Membership checks are a single hash lookup, and are safe to call from other threads.
+ * <p>
+ * Every value is given a weight when it is inserted, and each node tracks the lowest weight in its subtree so that
+ * the first value below a given weight can be found in O(log n) as well. Weights that have changed since have to be
+ * updated through {@link #reweigh(Object)}.
+ */
+@NullMarked
+public class OrderStatisticTree<T> implements Iterable<T> {
+    private final Map<T, Node<T>> nodes = new ConcurrentHashMap<>();
+    private final ToIntFunction<? super T> weigher;
+    private @Nullable Node<T> root;
+    private int modCount;
+
+    // The results of the last split, kept as fields to avoid allocating a pair for every split.
+    private @Nullable Node<T> splitLeft;
+    private @Nullable Node<T> splitRight;
+
+    public OrderStatisticTree() {
+        this(value -> 0);
+    }
+
+    public OrderStatisticTree(ToIntFunction<? super T> weigher) {
+        this.weigher = weigher;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public boolean contains(Object value) {
+        return nodes.containsKey(value);
+    }
+
+    /**
+     * @return A live, unmodifiable view of the values in this tree.
+     */
+    public Set<T> values() {
+        return Collections.unmodifiableSet(nodes.keySet());
+    }
+
+    /**
+     * @return The index of the given value, or -1 if it is not part of this tree.
+     */
+    public int indexOf(Object value) {
+        final Node<T> node = nodes.get(value);
+        return node == null ? -1 : rank(node);
+    }
+
+    public T get(int index) {
+        checkIndex(index, size());
+
+        Node<T> node = root;
+        while (node != null) {
+            final int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.value;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+
+        throw new IllegalStateException("Tree sizes are inconsistent");
+    }
+
+    /**
+     * @return The index of the first value with a weight lower than the given weight, or the size of this tree if there are none.
+     */
+    public int firstIndexWithWeightBelow(int weight) {
+        Node<T> node = root;
+        int offset = 0;
+
+        while (node != null) {
+            if (node.left != null && node.left.minWeight < weight) {
+                node = node.left;
+            } else if (node.weight < weight) {
+                return offset + size(node.left);
+            } else {
+                offset += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+
+        return offset;
+    }
+
+    public T getFirst() throws NoSuchElementException {
+        if (root == null)
+            throw new NoSuchElementException();
+
+        return leftmost(root).value;
+    }
+
+    public void addFirst(T value) {
+        add(0, value);
+    }
+
+    public void addLast(T value) {
+        add(size(), value);
+    }
+
+    /**
+     * Inserts a value directly after the given anchor.
+     *
+     * @return {@code false} if the anchor is not part of this tree, in which case nothing is inserted.
+     */
+    public boolean addAfter(T value, T anchor) {
+        final Node<T> anchorNode = nodes.get(anchor);
+        if (anchorNode == null)
+            return false;
+
+        add(rank(anchorNode) + 1, value);
+        return true;
+    }
+
+    public void add(int index, T value) {
+        checkIndex(index, size() + 1);
+
+        final Node<T> node = new Node<>(value, weigher.applyAsInt(value), ThreadLocalRandom.current().nextInt());
+        if (nodes.putIfAbsent(value, node) != null)
+            throw new IllegalArgumentException("Value '" + value + "' is already part of this tree");
+
+        split(root, index);
+        final Node<T> left = splitLeft;
+        final Node<T> right = splitRight;
+        splitLeft = splitRight = null;
+
+        setRoot(merge(merge(left, node), right));
+        modCount++;
+    }
+
+    /**
+     * Weighs a value again, for when its weight has changed since it was inserted. The value keeps its index.
+     *
+     * @return Whether the value is part of this tree.
+     */
+    public boolean reweigh(Object value) {
+        final Node<T> node = nodes.get(value);
+        if (node == null)
+            return false;
+
+        node.weight = weigher.applyAsInt(node.value);
+        for (Node<T> n = node; n != null; n = n.parent)
+            update(n);
+
+        return true;
+    }
+
+    public boolean remove(Object value) {
+        final Node<T> node = nodes.remove(value);
+        if (node == null)
+            return false;
+
+        unlink(node);
+        return true;
+    }
+
+    public T removeFirst() throws NoSuchElementException {
+        if (root == null)
+            throw new NoSuchElementException();
+
+        final Node<T> first = leftmost(root);
+        nodes.remove(first.value);
+        unlink(first);
+
+        return first.value;
+    }
+
+    public void clear() {
+        nodes.clear();
+        root = null;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private @Nullable Node<T> next = root == null ? null : leftmost(root);
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+
+                final Node<T> current = next;
+                if (current == null)
+                    throw new NoSuchElementException();
+
+                next = successor(current);
+                return current.value;
+            }
+        };
+    }
+
+    private void unlink(Node<T> node) {
+        // The children of a treap node always have a lower priority than it, so merging them keeps the heap ordering intact for the parent.
+        final Node<T> replacement = merge(node.left, node.right);
+        final Node<T> parent = node.parent;
+
+        if (replacement != null)
+            replacement.parent = parent;
+
+        if (parent == null)
+            root = replacement;
+        else if (parent.left == node)
+            parent.left = replacement;
+        else
+            parent.right = replacement;
+
+        for (Node<T> n = parent; n != null; n = n.parent)
+            update(n);
+
+        node.left = node.right = node.parent = null;
+        modCount++;
+    }
+
+    /**
+     * @return The amount of nodes that come before the given node.
+     */
+    private int rank(Node<T> node) {
+        int rank = size(node.left);
+
+        for (Node<T> n = node; n.parent != null; n = n.parent) {
+            if (n == n.parent.right)
+                rank += size(n.parent.left) + 1;
+        }
+
+        return rank;
+    }
+
+    /**
+     * Splits the given subtree into the first {@code count} nodes and the rest, stored in {@link #splitLeft} and {@link #splitRight}.
+     */
+    private void split(@Nullable Node<T> node, int count) {
+        if (node == null) {
+            splitLeft = splitRight = null;
+            return;
+        }
+
+        final int leftSize = size(node.left);
+        if (count <= leftSize) {
+            split(node.left, count);
+            node.left = splitRight;
+            if (splitRight != null)
+                splitRight.parent = node;
+
+            update(node);
+            splitRight = node;
+        } else {
+            split(node.right, count - leftSize - 1);
+            node.right = splitLeft;
+            if (splitLeft != null)
+                splitLeft.parent = node;
+
+            update(node);
+            splitLeft = node;
+        }
+
+        node.parent = null;
+    }
+
+    private @Nullable Node<T> merge(@Nullable Node<T> left, @Nullable Node<T> right) {
+        if (left == null)
+            return right;
+
+        if (right == null)
+            return left;
+
+        if (left.priority > right.priority) {
+            final Node<T> merged = merge(left.right, right);
+            left.right = merged;
+            merged.parent = left;
+            update(left);
+            return left;
+        } else {
+            final Node<T> merged = merge(left, right.left);
+            right.left = merged;
+            merged.parent = right;
+            update(right);
+            return right;
+        }
+    }
+
+    private void setRoot(@Nullable Node<T> node) {
+        this.root = node;
+        if (node != null)
+            node.parent = null;
+    }
+
+    private void update(Node<T> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+
+        int minWeight = node.weight;
+        if (node.left != null)
+            minWeight = Math.min(minWeight, node.left.minWeight);
+        if (node.right != null)
+            minWeight = Math.min(minWeight, node.right.minWeight);
+
+        node.minWeight = minWeight;
+    }
+
+    private static int size(@Nullable Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static <T> Node<T> leftmost(Node<T> node) {
+        while (node.left != null)
+            node = node.left;
+
+        return node;
+    }
+
+    private static <T> @Nullable Node<T> successor(Node<T> node) {
+        if (node.right != null)
+            return leftmost(node.right);
+
+        Node<T> current = node;
+        while (current.parent != null && current == current.parent.right)
+            current = current.parent;
+
+        return current.parent;
+    }
+
+    private static void checkIndex(int index, int length) {
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+    }
+
+    private static final class Node<T> {
+        private final T value;
+        private int weight;
+        private final int priority;
+        private @Nullable Node<T> left;
+        private @Nullable Node<T> right;
+        private @Nullable Node<T> parent;
+        private int size = 1;
+        private int minWeight;
+
+        private Node(T value, int weight, int priority) {
+            this.value = value;
+            this.weight = weight;
+            this.minWeight = weight;
+            this.priority = priority;
+        }
+    }
+}
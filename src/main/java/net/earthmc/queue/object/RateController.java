@@ -0,0 +1,159 @@
+package net.earthmc.queue.object;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.time.Duration;
+
+/**
+ * Adapts the amount of players a queue may be sending at once based on the outcome of previous connections.
+ * <p>
+ * The window grows additively, by one player for every full window of fast successful connections, and shrinks
+ * multiplicatively when a connection fails or when connect latency rises too far above the fastest recent latency. The fastest
+ * latency is taken over the last {@value #BASE_LATENCY_SAMPLES} to {@code 2 * }{@value #BASE_LATENCY_SAMPLES} successes, so that a
+ * single unusually fast connect doesn't keep the window small after it has aged out.
+ * A window is only cut once per round trip, so one burst of failures from a single window of sends doesn't collapse it.
+ * <p>
+ * This class is not thread safe, it is only meant to be used from within a queue's mailbox.
+ */
+@NullMarked
+public class RateController {
+    private static final double DECREASE_FACTOR = 0.5;
+    // The weight of a new latency sample in the moving average.
+    private static final double LATENCY_SMOOTHING = 0.2;
+    // The amount of successes after which the fastest latency in them stops being used as the base latency.
+    private static final int BASE_LATENCY_SAMPLES = 64;
+
+    private final double latencyTolerance;
+    private double window = 1;
+    private int maxWindow;
+    private double averageLatency = -1;
+    // The fastest latency in the current and previous set of samples, the base latency is the lowest of the two.
+    private double currentMinLatency = Double.MAX_VALUE;
+    private double previousMinLatency = Double.MAX_VALUE;
+    private int currentSamples;
+    // The amount of completed sends since the window was last cut.
+    private int completedSinceDecrease = Integer.MAX_VALUE;
+
+    private long successes;
+    private long failures;
+    private long decreases;
+
+    /**
+     * @param maxWindow The largest window this controller may grow to.
+     * @param latencyTolerance How many times slower than the fastest recent connect a connect may be before it counts as congestion.
+     */
+    public RateController(int maxWindow, double latencyTolerance) {
+        this.maxWindow = Math.max(1, maxWindow);
+        this.latencyTolerance = Math.max(1, latencyTolerance);
+    }
+
+    /**
+     * Records a successful connection.
+     *
+     * @param latency The time between starting the connection and it completing.
+     */
+    public void onSuccess(Duration latency) {
+        successes++;
+        countCompletion();
+
+        final double millis = Math.max(1, latency.toMillis());
+        sampleBaseLatency(millis);
+        averageLatency = averageLatency < 0 ? millis : averageLatency + LATENCY_SMOOTHING * (millis - averageLatency);
+
+        if (averageLatency > baseLatency() * latencyTolerance) {
+            decrease();
+            return;
+        }
+
+        window = Math.min(maxWindow, window + 1 / window);
+    }
+
+    /**
+     * Records a connection that failed because of the target server, such as it refusing the connection or being offline.
+     */
+    public void onFailure() {
+        failures++;
+        countCompletion();
+        decrease();
+    }
+
+    private void sampleBaseLatency(double millis) {
+        if (currentSamples == BASE_LATENCY_SAMPLES) {
+            previousMinLatency = currentMinLatency;
+            currentMinLatency = Double.MAX_VALUE;
+            currentSamples = 0;
+        }
+
+        currentSamples++;
+        currentMinLatency = Math.min(currentMinLatency, millis);
+    }
+
+    private double baseLatency() {
+        return Math.min(currentMinLatency, previousMinLatency);
+    }
+
+    private void countCompletion() {
+        if (completedSinceDecrease < Integer.MAX_VALUE)
+            completedSinceDecrease++;
+    }
+
+    private void decrease() {
+        // Sends that were already in flight when the window was cut will report the same congestion, don't cut again for those.
+        if (completedSinceDecrease < window)
+            return;
+
+        window = Math.max(1, window * DECREASE_FACTOR);
+        completedSinceDecrease = 0;
+        decreases++;
+
+        // Let the latency average settle at the new window before judging it again.
+        averageLatency = -1;
+    }
+
+    /**
+     * Forgets the latency history, for when the target server has restarted and earlier latencies no longer apply.
+     */
+    public void reset() {
+        window = 1;
+        averageLatency = -1;
+        currentMinLatency = Double.MAX_VALUE;
+        previousMinLatency = Double.MAX_VALUE;
+        currentSamples = 0;
+        completedSinceDecrease = Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return The amount of players that may currently be in flight, at least 1.
+     */
+    public int window() {
+        return (int) window;
+    }
+
+    public int maxWindow() {
+        return maxWindow;
+    }
+
+    public void maxWindow(int maxWindow) {
+        this.maxWindow = Math.max(1, maxWindow);
+        this.window = Math.min(window, this.maxWindow);
+    }
+
+    /**
+     * @return The moving average of connect latency in milliseconds, or -1 if no connection has completed since the last cut.
+     */
+    public long averageLatency() {
+        return Math.round(averageLatency);
+    }
+
+    public long successes() {
+        return successes;
+    }
+
+    public long failures() {
+        return failures;
+    }
+
+    public long decreases() {
+        return decreases;
+    }
+}
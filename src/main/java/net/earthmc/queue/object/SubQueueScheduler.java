@@ -0,0 +1,109 @@
+package net.earthmc.queue.object;
+
+import net.earthmc.queue.SubQueue;
+import net.earthmc.queue.jfr.SubQueueSelectionEvent;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks the sub queue to send the next player from, sending up to {@link SubQueue#maxSends} players from each sub queue in turn.
+ * <p>
+ * This makes the same choices as a {@link Ratio} over the sub queues with a not empty predicate and the regular queue as default value,
+ * but keeps its state in plain arrays and tests for empty sub queues with a bitmask, so that picking a sub queue allocates nothing.
+ * <p>
+ * This class is not thread safe, it is only meant to be used from within a queue's mailbox.
+ */
+@NullMarked
+public class SubQueueScheduler {
+    private final String queueName;
+    private final SubQueue[] subQueues;
+    private final SubQueue defaultSubQueue;
+    private final int[] maxSends;
+    private final int[] sends;
+    private int index = 0;
+
+    /**
+     * @param queueName The name of the queue the sub queues belong to, used for the {@link SubQueueSelectionEvent}.
+     * @param subQueues The sub queues to schedule, in the order they take turns in.
+     * @param defaultSubQueue The sub queue to return when all sub queues are empty.
+     */
+    public SubQueueScheduler(String queueName, List<SubQueue> subQueues, SubQueue defaultSubQueue) {
+        if (subQueues.isEmpty() || subQueues.size() > Long.SIZE)
+            throw new IllegalArgumentException("Expected between 1 and " + Long.SIZE + " sub queues, but got " + subQueues.size());
+
+        this.queueName = queueName;
+        this.subQueues = subQueues.toArray(new SubQueue[0]);
+        this.defaultSubQueue = defaultSubQueue;
+        this.maxSends = new int[this.subQueues.length];
+        this.sends = new int[this.subQueues.length];
+
+        for (int i = 0; i < this.subQueues.length; i++)
+            this.maxSends[i] = this.subQueues[i].maxSends;
+    }
+
+    /**
+     * @param dry If dry is set to true, the sends won't be counted or reset.
+     * @return The sub queue to send the next player from.
+     */
+    public SubQueue next(boolean dry) {
+        final SubQueue subQueue = select(dry);
+        if (!dry)
+            SubQueueSelectionEvent.emit(queueName, subQueue.name(), subQueue.players().size());
+
+        return subQueue;
+    }
+
+    private SubQueue select(boolean dry) {
+        // Return the current sub queue if there is only 1.
+        if (subQueues.length == 1)
+            return subQueues[index];
+
+        final long nonEmpty = nonEmptyMask();
+        int firstNonEmpty = -1;
+
+        // Loop through all sub queues once, starting at the current index.
+        for (int i = 0; i < subQueues.length; i++) {
+            final boolean hasPlayers = (nonEmpty & (1L << index)) != 0;
+            if (hasPlayers && firstNonEmpty == -1)
+                firstNonEmpty = index;
+
+            if (sends[index] >= maxSends[index] || !hasPlayers) {
+                // This sub queue has had its turn, reset its sends for its next turn.
+                if (!dry && sends[index] >= maxSends[index])
+                    sends[index] = 0;
+
+                index = index + 1 >= subQueues.length ? 0 : index + 1;
+            } else {
+                if (!dry)
+                    sends[index]++;
+
+                return subQueues[index];
+            }
+        }
+
+        // None of the non-empty sub queues have sends left, return the first non-empty one so that players can't get stuck.
+        return firstNonEmpty != -1 ? subQueues[firstNonEmpty] : defaultSubQueue;
+    }
+
+    private long nonEmptyMask() {
+        long mask = 0;
+        for (int i = 0; i < subQueues.length; i++)
+            if (!subQueues[i].players().isEmpty())
+                mask |= 1L << i;
+
+        return mask;
+    }
+
+    /**
+     * Updates the max sends of sub queues, matched by name, so that ratios can be changed via the reload command.
+     */
+    public void updateMaxSends(Map<String, Integer> maxSendsByName) {
+        for (int i = 0; i < subQueues.length; i++) {
+            final Integer updated = maxSendsByName.get(subQueues[i].name());
+            if (updated != null)
+                maxSends[i] = updated;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package net.earthmc.queue.object;
+
+import net.earthmc.queue.SubQueue;
+import org.jspecify.annotations.NullMarked;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Estimates how long players have to wait before they are sent, from moving averages of how quickly a queue sends players.
+ * <p>
+ * The estimator keeps an average of the time between two successful sends, and the share of sends each sub queue has been getting.
+ * Shares start out at the sub queue's configured ratio and only move while a sub queue has players, so a sub queue that has been
+ * empty for a while starts with the share it got when it last had players. Both are updated once per send and estimating the wait
+ * for a position is a single division, without looking at the players in the queue.
+ * <p>
+ * This class is not thread safe, it is only meant to be used from within a queue's mailbox.
+ */
+@NullMarked
+public class ThroughputEstimator {
+    // The weight of a new sample in the moving average of the send interval.
+    private static final double INTERVAL_SMOOTHING = 0.2;
+    // The weight of a single send in the shares, sub queues take turns so shares are smoothed over more sends than the interval.
+    private static final double SHARE_SMOOTHING = 0.05;
+
+    private final SubQueue[] subQueues;
+    private final double[] shares;
+    private double averageInterval = -1;
+    private long lastSendNanos = -1;
+
+    /**
+     * @param subQueues The sub queues of the queue, in the same order as the queue's scheduler.
+     */
+    public ThroughputEstimator(List<SubQueue> subQueues) {
+        this.subQueues = subQueues.toArray(new SubQueue[0]);
+        this.shares = new double[this.subQueues.length];
+
+        int totalSends = 0;
+        for (SubQueue subQueue : this.subQueues)
+            totalSends += Math.max(1, subQueue.maxSends);
+
+        for (int i = 0; i < this.subQueues.length; i++)
+            this.shares[i] = (double) Math.max(1, this.subQueues[i].maxSends) / totalSends;
+    }
+
+    /**
+     * Records a successful send.
+     *
+     * @param from The sub queue the player was sent from.
+     * @param nanoTime The time the send completed at, as returned by {@link System#nanoTime()}.
+     */
+    public void onSend(SubQueue from, long nanoTime) {
+        if (lastSendNanos != -1) {
+            final double interval = Math.max(1, nanoTime - lastSendNanos);
+            averageInterval = averageInterval < 0 ? interval : averageInterval + INTERVAL_SMOOTHING * (interval - averageInterval);
+        }
+
+        lastSendNanos = nanoTime;
+
+        // Move the share of every sub queue competing for sends towards whether it got this one.
+        for (int i = 0; i < subQueues.length; i++) {
+            final boolean sent = subQueues[i] == from;
+            if (sent || !subQueues[i].players().isEmpty())
+                shares[i] += SHARE_SMOOTHING * ((sent ? 1 : 0) - shares[i]);
+        }
+    }
+
+    /**
+     * Forgets the time of the last send, so that the time a queue spent empty or paused doesn't count as a slow send.
+     */
+    public void restart() {
+        lastSendNanos = -1;
+    }
+
+    /**
+     * @param subQueue The sub queue the player is in.
+     * @param position The player's position in the sub queue, starting at 0.
+     * @return The estimated time until the player is sent, or an empty optional if the queue hasn't sent enough players to tell.
+     */
+    public Optional<Duration> estimate(SubQueue subQueue, int position) {
+        final int index = indexOf(subQueue);
+        if (averageInterval < 0 || index == -1 || position < 0)
+            return Optional.empty();
+
+        return Optional.of(Duration.ofNanos((long) ((position + 1) * averageInterval / Math.max(shares[index], 0.01))));
+    }
+
+    /**
+     * @return The average amount of players sent per minute, or -1 if unknown.
+     */
+    public double sendsPerMinute() {
+        return averageInterval < 0 ? -1 : 60_000_000_000d / averageInterval;
+    }
+
+    /**
+     * @return The share of sends the given sub queue has been getting, between 0 and 1.
+     */
+    public double share(SubQueue subQueue) {
+        final int index = indexOf(subQueue);
+        return index == -1 ? 0 : shares[index];
+    }
+
+    private int indexOf(SubQueue subQueue) {
+        for (int i = 0; i < subQueues.length; i++)
+            if (subQueues[i] == subQueue)
+                return i;
+
+        return -1;
+    }
+}
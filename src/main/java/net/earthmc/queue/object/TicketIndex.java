@@ -0,0 +1,254 @@
+package net.earthmc.queue.object;
+
+import org.jetbrains.annotations.VisibleForTesting;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the positions of values in an ordered sequence using tickets with gaps between them.
+ * <p>
+ * Every value holds a ticket, and tickets are ordered the same as the values. A Fenwick tree counts the tickets in use, so the position
+ * of a value is the amount of tickets before its own, in O(log n) and without walking the sequence.
+ * <p>
+ * A value that is added between two others gets a free ticket between theirs. Only when there is none left are the tickets of nearby
+ * values spread out again, over the smallest surrounding range of tickets that is sparse enough, so an insert costs O(log² n) amortised
+ * instead of re-issuing the tickets of the whole sequence. Values added to either end skip a few free tickets to leave room for inserts
+ * next to them, and all tickets are only re-issued once an end runs out, at most once per O(n) adds.
+ */
+@NullMarked
+public class TicketIndex<T> {
+    private static final int MIN_CAPACITY = 64;
+    // The most free tickets that are skipped when adding to either end, so that later inserts next to it have room.
+    private static final int MAX_STRIDE = 8;
+
+    private final Map<T, Integer> tickets = new ConcurrentHashMap<>();
+    // The value holding each ticket, or null if the ticket is free.
+    private Object[] values;
+    // Fenwick tree counting the tickets in use. Index 0 is unused, index i + 1 is ticket i.
+    private int[] used;
+    // Always a power of two, so that ranges of tickets can be aligned to it.
+    private int capacity;
+    private long reissued;
+
+    public TicketIndex() {
+        rebuild(List.of());
+    }
+
+    public void addLast(T value) {
+        add(size(), value);
+    }
+
+    public void addFirst(T value) {
+        add(0, value);
+    }
+
+    /**
+     * Adds a value so that it ends up at the given position, moving the value that was there and all values after it back by one.
+     */
+    public void add(int position, T value) {
+        final int size = size();
+        if (position < 0 || position > size)
+            throw new IndexOutOfBoundsException("Position " + position + " is out of bounds for size " + size);
+
+        if (tickets.containsKey(value))
+            throw new IllegalArgumentException("Value '" + value + "' already has a ticket");
+
+        final int before = position == 0 ? -1 : select(position);
+        final int after = position == size ? capacity : select(position + 1);
+        final int gap = after - before;
+
+        if (gap <= 1 && (before == -1 || after == capacity)) {
+            // Out of tickets at an end, which happens after as many adds as it costs to re-issue everything.
+            reissued += size;
+            rebuild(ordered(value, before));
+        } else if (gap <= 1)
+            spread(before, value);
+        else if (after == capacity)
+            issue(value, before + Math.min(gap / 2, MAX_STRIDE));
+        else if (before == -1)
+            issue(value, after - Math.min(gap / 2, MAX_STRIDE));
+        else
+            issue(value, before + gap / 2);
+    }
+
+    public boolean remove(Object value) {
+        final Integer ticket = tickets.remove(value);
+        if (ticket == null)
+            return false;
+
+        values[ticket] = null;
+        update(ticket, -1);
+
+        if (capacity > MIN_CAPACITY && tickets.size() * 32 < capacity)
+            rebuild(ordered(null, -1));
+
+        return true;
+    }
+
+    /**
+     * @return The position of the value, or -1 if the value has no ticket.
+     */
+    public int position(Object value) {
+        final Integer ticket = tickets.get(value);
+        return ticket == null ? -1 : countBefore(ticket);
+    }
+
+    public boolean contains(Object value) {
+        return tickets.containsKey(value);
+    }
+
+    /**
+     * @return A live, unmodifiable view of the values that currently hold a ticket.
+     */
+    public Set<T> values() {
+        return Collections.unmodifiableSet(tickets.keySet());
+    }
+
+    public int size() {
+        return tickets.size();
+    }
+
+    /**
+     * Discards all tickets and hands out new ones in the order of the given values, evenly spread out over the middle half of the
+     * tickets so that a quarter is left free on either end.
+     */
+    public void rebuild(Iterable<T> orderedValues) {
+        final List<T> ordered = new ArrayList<>();
+        orderedValues.forEach(ordered::add);
+
+        this.capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, ordered.size())) << 3);
+        this.values = new Object[capacity];
+        this.used = new int[capacity + 1];
+
+        tickets.clear();
+        place(ordered, capacity / 4, capacity / 2);
+    }
+
+    /**
+     * @return The amount of tickets that have been given to a value that already had one, because there was no free ticket left.
+     */
+    @VisibleForTesting
+    public long reissued() {
+        return reissued;
+    }
+
+    /**
+     * Adds a value right after the ticket {@code before} when there is no free ticket there, by spreading out the tickets in the smallest
+     * aligned range around it that is sparse enough. Larger ranges are allowed to be denser than smaller ones, which keeps the amount of
+     * tickets that are spread out low on average. If even the full range is too dense the capacity is doubled.
+     */
+    private void spread(int before, T value) {
+        final int pivot = Math.max(before, 0);
+        final int levels = Integer.numberOfTrailingZeros(capacity);
+
+        for (int level = 1; level <= levels; level++) {
+            final int size = 1 << level;
+            final int start = pivot & -size;
+            final int count = countBefore(start + size) - countBefore(start);
+
+            // The allowed density goes from 1 for the smallest ranges down to 1/2 for the full range.
+            if ((long) (count + 1) * 2 * levels <= (long) size * (2L * levels - level)) {
+                final List<T> block = new ArrayList<>(count + 1);
+                if (before < start)
+                    block.add(value);
+
+                for (int ticket = start; ticket < start + size; ticket++) {
+                    final T held = held(ticket);
+                    if (held != null) {
+                        block.add(held);
+                        values[ticket] = null;
+                        update(ticket, -1);
+                    }
+
+                    if (ticket == before)
+                        block.add(value);
+                }
+
+                reissued += count;
+                place(block, start, size);
+                return;
+            }
+        }
+
+        reissued += size();
+        rebuild(ordered(value, before));
+    }
+
+    /**
+     * @return All values in order, with the given value added right after the ticket {@code before} if it isn't null.
+     */
+    private List<T> ordered(@Nullable T value, int before) {
+        final List<T> ordered = new ArrayList<>(size() + 1);
+        if (value != null && before == -1)
+            ordered.add(value);
+
+        for (int ticket = 0; ticket < capacity; ticket++) {
+            final T held = held(ticket);
+            if (held != null)
+                ordered.add(held);
+
+            if (value != null && ticket == before)
+                ordered.add(value);
+        }
+
+        return ordered;
+    }
+
+    /**
+     * Gives the values evenly spread out tickets in the range, which must be free.
+     */
+    private void place(List<T> ordered, int start, int size) {
+        final int count = ordered.size();
+        for (int i = 0; i < count; i++)
+            issue(ordered.get(i), start + (int) ((2L * i + 1) * size / (2L * count)));
+    }
+
+    private void issue(T value, int ticket) {
+        tickets.put(value, ticket);
+        values[ticket] = value;
+        update(ticket, 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private @Nullable T held(int ticket) {
+        return (T) values[ticket];
+    }
+
+    private void update(int ticket, int delta) {
+        for (int i = ticket + 1; i <= capacity; i += i & -i)
+            used[i] += delta;
+    }
+
+    /**
+     * @return The amount of tickets in use that are lower than the given ticket.
+     */
+    private int countBefore(int ticket) {
+        int count = 0;
+        for (int i = ticket; i > 0; i -= i & -i)
+            count += used[i];
+
+        return count;
+    }
+
+    /**
+     * @return The ticket of the value at the given position, counting from 1.
+     */
+    private int select(int position) {
+        int index = 0;
+        for (int step = capacity; step > 0; step >>= 1) {
+            if (index + step <= capacity && used[index + step] < position) {
+                index += step;
+                position -= used[index];
+            }
+        }
+
+        return index;
+    }
+}
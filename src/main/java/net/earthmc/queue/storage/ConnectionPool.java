@@ -0,0 +1,229 @@
+package net.earthmc.queue.storage;
+
+import net.earthmc.queue.config.QueueConfig;
+import net.earthmc.queue.metrics.StorageMetrics;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of database connections.
+ * <p>
+ * At most {@code max-size} connections are open at a time, borrowing a connection waits for one to be returned when they are all in
+ * use, and fails after the connection timeout. Returned connections are kept open and reused, most recently used first, so that
+ * connections which are no longer needed sit idle until they are evicted by {@link #evictIdle()}. Connections that have been idle for
+ * a while are validated before being handed out again, and connections are replaced once they reach their max lifetime.
+ */
+@NullMarked
+public class ConnectionPool implements AutoCloseable {
+    // Connections that were used this recently are assumed to still be alive, which saves a round trip on busy pools.
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final ConnectionFactory factory;
+    private final QueueConfig.PoolSettings settings;
+    private final @Nullable StorageMetrics metrics;
+    // One permit for every connection that can still be borrowed.
+    private final Semaphore permits;
+    // Idle connections, the most recently returned one first. Guarded by itself.
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    public ConnectionPool(ConnectionFactory factory, QueueConfig.PoolSettings settings, @Nullable StorageMetrics metrics) {
+        this.factory = factory;
+        this.settings = settings;
+        this.metrics = metrics;
+        this.permits = new Semaphore(settings.maxSize(), true);
+    }
+
+    /**
+     * Borrows a connection from the pool, which is returned to the pool when it is closed.
+     *
+     * @throws SQLTimeoutException If no connection became available within the connection timeout.
+     */
+    public PooledConnection borrow() throws SQLException {
+        if (closed)
+            throw new SQLException("The connection pool is closed");
+
+        final long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(settings.connectionTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                if (metrics != null)
+                    metrics.poolTimeouts().increment();
+
+                throw new SQLTimeoutException("Timed out after " + settings.connectionTimeout().toMillis() + "ms waiting for a database connection, " + active.get() + " of " + settings.maxSize() + " are in use");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            final PooledConnection connection = take();
+            active.incrementAndGet();
+
+            if (metrics != null)
+                metrics.poolAcquireTime().recordSince(start);
+
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection take() throws SQLException {
+        while (true) {
+            final PooledConnection connection;
+            synchronized (idle) {
+                connection = idle.pollFirst();
+            }
+
+            if (connection == null)
+                return open();
+
+            final long now = System.nanoTime();
+            if (isExpired(connection, now) || (now - connection.lastUsed() >= VALIDATION_BYPASS_NANOS && !isValid(connection))) {
+                connection.closePhysically();
+                continue;
+            }
+
+            connection.borrowed();
+            return connection;
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        final PooledConnection connection = new PooledConnection(this, factory.create(), settings.statementCacheSize());
+
+        if (metrics != null)
+            metrics.poolConnectionsCreated().increment();
+
+        return connection;
+    }
+
+    private static boolean isValid(PooledConnection connection) {
+        try {
+            return connection.connection().isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledConnection connection, long now) {
+        return !settings.maxLifetime().isZero() && now - connection.createdAt() >= settings.maxLifetime().toNanos();
+    }
+
+    /**
+     * Called by a connection when it is closed by whoever borrowed it.
+     */
+    void release(PooledConnection connection) {
+        active.decrementAndGet();
+
+        try {
+            if (closed || connection.isBroken() || isExpired(connection, System.nanoTime())) {
+                connection.closePhysically();
+                return;
+            }
+
+            synchronized (idle) {
+                idle.addFirst(connection);
+            }
+
+            // The pool may have been closed while the connection was being added.
+            if (closed)
+                closeIdle();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes connections that have been idle for longer than the idle timeout, or have reached their max lifetime.
+     *
+     * @return The amount of connections that were closed.
+     */
+    public int evictIdle() {
+        final long now = System.nanoTime();
+        final long idleTimeout = settings.idleTimeout().toNanos();
+        final List<PooledConnection> evicted = new ArrayList<>();
+
+        synchronized (idle) {
+            // The least recently used connections are at the end.
+            final Iterator<PooledConnection> iterator = idle.descendingIterator();
+            while (iterator.hasNext()) {
+                final PooledConnection connection = iterator.next();
+                if (now - connection.lastUsed() >= idleTimeout || isExpired(connection, now)) {
+                    iterator.remove();
+                    evicted.add(connection);
+                }
+            }
+        }
+
+        evicted.forEach(PooledConnection::closePhysically);
+        return evicted.size();
+    }
+
+    /**
+     * @return The amount of connections that are currently borrowed.
+     */
+    public int active() {
+        return active.get();
+    }
+
+    /**
+     * @return The amount of open connections that are waiting to be borrowed.
+     */
+    public int idle() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    /**
+     * @return An estimate of the amount of threads waiting for a connection.
+     */
+    public int pending() {
+        return permits.getQueueLength();
+    }
+
+    public int maxSize() {
+        return settings.maxSize();
+    }
+
+    /**
+     * Closes all idle connections, connections that are still borrowed are closed as they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        closeIdle();
+    }
+
+    private void closeIdle() {
+        final List<PooledConnection> connections;
+        synchronized (idle) {
+            connections = new ArrayList<>(idle);
+            idle.clear();
+        }
+
+        connections.forEach(PooledConnection::closePhysically);
+    }
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+}
@@ -1,23 +1,31 @@
 package net.earthmc.queue.storage;
 
 import net.earthmc.queue.QueuePlugin;
-import net.earthmc.queue.QueuedPlayer;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.Properties;
-import java.util.concurrent.CompletableFuture;
+import java.util.UUID;
 
 public class FlatFileStorage extends Storage {
-    private final QueuePlugin plugin;
+    /**
+     * A file in the data folder whose modification time is when data was last saved, so that {@link LogStorage} only looks through
+     * the data folder again when there is something new to import.
+     */
+    public static final String SAVED_MARKER = "saved";
+
     private final Path dataFolderPath; // Path to velocity /plugins/queue/data
 
     public FlatFileStorage(QueuePlugin plugin, Path dataFolderPath) {
-        this.plugin = plugin;
+        super("flatfile", plugin.logger(), plugin.storageMetrics(), plugin.config().storageExecutorSettings(), plugin.config().cacheSettings());
         this.dataFolderPath = dataFolderPath;
 
         if (!Files.isDirectory(dataFolderPath)) {
@@ -32,42 +40,55 @@ public class FlatFileStorage extends Storage {
     }
 
     @Override
-    public CompletableFuture<Void> loadPlayer(@NotNull QueuedPlayer player) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                Path dataFile = dataFolderPath.resolve(player.uuid() + ".txt");
-
-                if (!Files.exists(dataFile))
-                    return;
-
-                Properties properties = new Properties();
-                try (InputStream is = Files.newInputStream(dataFile)) {
-                    properties.load(is);
-                    player.setAutoQueueDisabled(Boolean.parseBoolean(properties.getProperty("autoQueueDisabled", "false")));
-                    player.setLastJoinedServer(properties.getProperty("lastJoinedServer"));
-                }
-            } catch (IOException ignored) {}
-        });
+    protected @Nullable PlayerData loadData(@NotNull UUID uuid) throws IOException {
+        Path dataFile = dataFolderPath.resolve(uuid + ".txt");
+        if (!Files.exists(dataFile))
+            return null;
+
+        Properties properties = new Properties();
+        try (InputStream is = Files.newInputStream(dataFile)) {
+            properties.load(is);
+        }
+
+        return new PlayerData(uuid, properties.getProperty("lastJoinedServer"), Boolean.parseBoolean(properties.getProperty("autoQueueDisabled", "false")));
     }
 
     @Override
-    public CompletableFuture<Void> savePlayer(@NotNull QueuedPlayer player) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                Path dataFile = dataFolderPath.resolve(player.uuid() + ".txt");
+    protected void saveData(@NotNull Collection<PlayerData> data) throws IOException {
+        IOException exception = null;
 
-                Properties properties = new Properties();
-                if (player.getLastJoinedServer().isPresent())
-                    properties.setProperty("lastJoinedServer", player.getLastJoinedServer().get());
+        // Write every file even if one of them fails, the failed batch is retried as a whole.
+        for (PlayerData player : data) {
+            Properties properties = new Properties();
+            if (player.lastJoinedServer() != null)
+                properties.setProperty("lastJoinedServer", player.lastJoinedServer());
 
-                properties.setProperty("autoQueueDisabled", String.valueOf(player.isAutoQueueDisabled()));
+            properties.setProperty("autoQueueDisabled", String.valueOf(player.autoQueueDisabled()));
 
-                try (OutputStream os = Files.newOutputStream(dataFile)) {
-                    properties.store(os, null);
-                }
+            try (OutputStream os = Files.newOutputStream(dataFolderPath.resolve(player.uuid() + ".txt"))) {
+                properties.store(os, null);
             } catch (IOException e) {
-                plugin.logger().error("An error occurred when saving data for {}", player.uuid(), e);
+                if (exception == null)
+                    exception = e;
+                else
+                    exception.addSuppressed(e);
             }
-        });
+        }
+
+        try {
+            final Path marker = dataFolderPath.resolve(SAVED_MARKER);
+            if (!Files.exists(marker))
+                Files.createFile(marker);
+
+            Files.setLastModifiedTime(marker, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            if (exception == null)
+                exception = e;
+            else
+                exception.addSuppressed(e);
+        }
+
+        if (exception != null)
+            throw exception;
     }
 }
@@ -0,0 +1,538 @@
+package net.earthmc.queue.storage;
+
+import net.earthmc.queue.config.QueueConfig;
+import net.earthmc.queue.metrics.StorageMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Stores player data as binary records appended to a log of segment files, instead of one file per player.
+ * <p>
+ * An in-memory index maps every player to the location of their latest record, so loading is a single positional read and saving a
+ * batch is a single append. Once a segment is full a new one is started, and full segments that are mostly made up of records which
+ * have since been overwritten are compacted in the background by copying their live records to the end of the log. When the log is
+ * opened, the index is rebuilt by reading all segments in order, and a record that was only partially written is cut off.
+ * <p>
+ * A record is laid out as its length, the player's UUID as two longs, a flags byte, the last joined server as a length prefixed UTF-8
+ * string and a CRC32C checksum of everything after the length.
+ */
+public class LogStorage extends Storage {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String IMPORTED_MARKER = "imported";
+    // Full segments are compacted once less than this fraction of their bytes belong to live records.
+    private static final double COMPACTION_THRESHOLD = 0.5;
+    private static final int MAX_RECORD_SIZE = 4 + 16 + 1 + 2 + 0xFFFF + 4;
+    private static final int FLAG_AUTO_QUEUE_DISABLED = 1;
+    private static final int FLAG_HAS_LAST_JOINED = 1 << 1;
+    private static final int IMPORT_BATCH_SIZE = 1000;
+
+    private final Path directory;
+    private final @Nullable Path importDirectory;
+    private final long segmentSize;
+    // Guards the index and segments, loads hold the read lock while reading a record so the segment can't be compacted under them.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Location> index = new HashMap<>();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private @Nullable Segment active;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private boolean open = false;
+
+    /**
+     * @param importDirectory A directory of flat file storage {@code <uuid>.txt} files to import when they are newer than the last import.
+     * @param segmentSize The size in bytes after which a new segment is started.
+     */
+    public LogStorage(@NotNull Path directory, @Nullable Path importDirectory, long segmentSize, @NotNull Logger logger, @Nullable StorageMetrics metrics, @NotNull QueueConfig.StorageExecutorSettings executorSettings, @NotNull QueueConfig.CacheSettings cacheSettings) {
+        super("log", logger, metrics, executorSettings, cacheSettings);
+        this.directory = directory;
+        this.importDirectory = importDirectory;
+        this.segmentSize = segmentSize;
+    }
+
+    @Override
+    public void enable() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (open)
+                return;
+
+            Files.createDirectories(directory);
+            recover();
+            open = true;
+
+            if (active == null)
+                active = openSegment(segments.isEmpty() ? 0 : segments.lastKey() + 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        importFlatFiles();
+        logger.info("Using log storage with {} players in {} segments.", players(), segments());
+        compactInBackground();
+    }
+
+    @Override
+    public void disable() {
+        super.disable();
+
+        lock.writeLock().lock();
+        try {
+            if (!open)
+                return;
+
+            open = false;
+            for (Segment segment : segments.values())
+                segment.close();
+
+            segments.clear();
+            index.clear();
+            active = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected @Nullable PlayerData loadData(@NotNull UUID uuid) throws IOException {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+
+            final Location location = index.get(uuid);
+            if (location == null)
+                return null;
+
+            final ByteBuffer buffer = ByteBuffer.allocate(location.size());
+            segments.get(location.segment()).read(buffer, location.offset());
+            return decode(buffer.flip());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected void saveData(@NotNull Collection<PlayerData> data) throws IOException {
+        final List<ByteBuffer> records = new ArrayList<>(data.size());
+        for (PlayerData player : data)
+            records.add(encode(player));
+
+        boolean rolled;
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            rolled = append(records);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (rolled)
+            compactInBackground();
+    }
+
+    /**
+     * Appends records to the active segment in a single write and points the index at them, the caller holds the write lock.
+     *
+     * @return Whether a new segment was started.
+     */
+    private boolean append(List<ByteBuffer> records) throws IOException {
+        int total = 0;
+        for (ByteBuffer record : records)
+            total += record.remaining();
+
+        Segment segment = active();
+        boolean rolled = false;
+        if (segment.size > 0 && segment.size + total > segmentSize) {
+            segment = active = openSegment(segment.id + 1);
+            rolled = true;
+        }
+
+        final ByteBuffer batch = ByteBuffer.allocate(total);
+        final List<Location> locations = new ArrayList<>(records.size());
+        for (ByteBuffer record : records) {
+            locations.add(new Location(segment.id, segment.size + batch.position(), record.remaining()));
+            batch.put(record);
+        }
+
+        segment.write(batch.flip(), segment.size);
+        segment.force();
+        segment.size += total;
+
+        for (int i = 0; i < records.size(); i++)
+            updateIndex(uuidOf(records.get(i)), locations.get(i));
+
+        return rolled;
+    }
+
+    private void updateIndex(UUID uuid, Location location) {
+        final Location previous = index.put(uuid, location);
+        if (previous != null) {
+            final Segment segment = segments.get(previous.segment());
+            if (segment != null)
+                segment.liveBytes -= previous.size();
+        }
+
+        segments.get(location.segment()).liveBytes += location.size();
+    }
+
+    private void compactInBackground() {
+        if (!compacting.compareAndSet(false, true))
+            return;
+
+        runAsync(() -> {
+            try {
+                compact();
+            } catch (IOException e) {
+                logger.error("An exception occurred when compacting the storage log", e);
+            }
+        }).whenComplete((v, t) -> compacting.set(false));
+    }
+
+    /**
+     * Compacts all full segments that are mostly made up of overwritten records.
+     *
+     * @return The amount of segments that were compacted.
+     */
+    @VisibleForTesting
+    int compact() throws IOException {
+        final List<Integer> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (!open)
+                return 0;
+
+            for (Segment segment : segments.values())
+                if (segment != active && segment.liveBytes < segment.size * COMPACTION_THRESHOLD)
+                    candidates.add(segment.id);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int compacted = 0;
+        for (int id : candidates) {
+            // One segment at a time, so that loads and saves only ever wait for a single segment to be copied.
+            lock.writeLock().lock();
+            try {
+                if (!open)
+                    break;
+
+                // The segment may have been compacted by another call in the meantime.
+                final Segment segment = segments.get(id);
+                if (segment == null || segment == active)
+                    continue;
+
+                compactSegment(segment);
+                compacted++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        return compacted;
+    }
+
+    private void compactSegment(Segment segment) throws IOException {
+        final List<Location> live = new ArrayList<>();
+        for (Location location : index.values())
+            if (location.segment() == segment.id)
+                live.add(location);
+
+        if (!live.isEmpty()) {
+            final List<ByteBuffer> records = new ArrayList<>(live.size());
+            for (Location location : live) {
+                final ByteBuffer record = ByteBuffer.allocate(location.size());
+                segment.read(record, location.offset());
+                records.add(record.flip());
+            }
+
+            // The copies are written and forced to disk before the segment is deleted, and win over it if the log is recovered.
+            append(records);
+        }
+
+        segments.remove(segment.id);
+        segment.close();
+        Files.deleteIfExists(segment.path);
+    }
+
+    /**
+     * Rebuilds the index from the segments on disk, cutting off any record that was not completely written.
+     */
+    private void recover() throws IOException {
+        final List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                final String name = path.getFileName().toString();
+                try {
+                    ids.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException ignored) {}
+            }
+        }
+
+        ids.sort(null);
+        for (int id : ids) {
+            final Segment segment = openSegment(id);
+            final long fileSize = segment.channel.size();
+            final ByteBuffer header = ByteBuffer.allocate(4);
+
+            long offset = 0;
+            while (offset < fileSize) {
+                final int size;
+                final ByteBuffer record;
+                try {
+                    segment.read(header.clear(), offset);
+                    size = header.getInt(0);
+                    if (size < 4 + 16 + 1 + 2 + 4 || size > MAX_RECORD_SIZE)
+                        throw new IOException("Invalid record size " + size);
+
+                    record = ByteBuffer.allocate(size);
+                    segment.read(record, offset);
+                    decode(record.flip());
+                } catch (IOException e) {
+                    logger.warn("Discarding {} bytes at the end of {} that could not be read: {}", fileSize - offset, segment.path.getFileName(), e.getMessage());
+                    segment.channel.truncate(offset);
+                    break;
+                }
+
+                updateIndex(uuidOf(record), new Location(id, offset, size));
+                offset += size;
+            }
+
+            segment.size = offset;
+            active = segment;
+        }
+    }
+
+    /**
+     * Imports the data of flat file storage that has changed since it was last imported, which is all of it the first time the log is
+     * opened. The marker's modification time is when the last import started, so data that was saved to flat file storage while it was
+     * in use in between is imported again. Flat file storage touches its {@link FlatFileStorage#SAVED_MARKER marker} when it saves, so
+     * the directory is only looked through again if that happened after the last import.
+     */
+    private void importFlatFiles() throws IOException {
+        if (importDirectory == null || !Files.isDirectory(importDirectory))
+            return;
+
+        final Path marker = directory.resolve(IMPORTED_MARKER);
+        final @Nullable FileTime importedAt = Files.exists(marker) ? Files.getLastModifiedTime(marker) : null;
+        if (importedAt != null && !savedSince(importDirectory.resolve(FlatFileStorage.SAVED_MARKER), importedAt))
+            return;
+
+        final FileTime startedAt = FileTime.from(Instant.now());
+
+        int imported = 0;
+        int skipped = 0;
+        final List<PlayerData> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(importDirectory, "*.txt")) {
+            for (Path file : stream) {
+                final String name = file.getFileName().toString();
+                final UUID uuid;
+                try {
+                    uuid = UUID.fromString(name.substring(0, name.length() - ".txt".length()));
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+
+                final Properties properties = new Properties();
+                try {
+                    if (importedAt != null && Files.getLastModifiedTime(file).compareTo(importedAt) <= 0)
+                        continue;
+
+                    try (InputStream is = Files.newInputStream(file)) {
+                        properties.load(is);
+                    }
+                } catch (IOException | IllegalArgumentException e) {
+                    // One unreadable file shouldn't keep everyone else's data from being imported.
+                    skipped++;
+                    logger.warn("Skipping the flat file {}, since it couldn't be read.", file, e);
+                    continue;
+                }
+
+                batch.add(new PlayerData(uuid, properties.getProperty("lastJoinedServer"), Boolean.parseBoolean(properties.getProperty("autoQueueDisabled", "false"))));
+                if (batch.size() == IMPORT_BATCH_SIZE) {
+                    saveData(batch);
+                    imported += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            saveData(batch);
+            imported += batch.size();
+        }
+
+        // The flat files are left in place, so that switching back to flat file storage keeps working.
+        if (!Files.exists(marker))
+            Files.createFile(marker);
+
+        Files.setLastModifiedTime(marker, startedAt);
+
+        if (importedAt == null || imported > 0 || skipped > 0)
+            logger.info("Imported the data of {} players from flat file storage, {} files were skipped.", imported, skipped);
+    }
+
+    private static boolean savedSince(Path marker, FileTime time) {
+        try {
+            return Files.getLastModifiedTime(marker).compareTo(time) > 0;
+        } catch (IOException e) {
+            // Flat file storage hasn't saved anything since it started leaving a marker.
+            return false;
+        }
+    }
+
+    @VisibleForTesting
+    int players() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @VisibleForTesting
+    int segments() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!open)
+            throw new IOException("The storage log is not open");
+    }
+
+    private Segment active() throws IOException {
+        if (active == null)
+            throw new IOException("The storage log is not open");
+
+        return active;
+    }
+
+    private Segment openSegment(int id) throws IOException {
+        final Path path = directory.resolve(SEGMENT_PREFIX + String.format("%06d", id) + SEGMENT_SUFFIX);
+        final Segment segment = new Segment(id, path, FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        segments.put(id, segment);
+        return segment;
+    }
+
+    @VisibleForTesting
+    static ByteBuffer encode(PlayerData data) {
+        final byte[] lastJoined = data.lastJoinedServer() == null ? new byte[0] : data.lastJoinedServer().getBytes(StandardCharsets.UTF_8);
+        if (lastJoined.length > 0xFFFF)
+            throw new IllegalArgumentException("Last joined server of " + data.uuid() + " is too long");
+
+        final int size = 4 + 16 + 1 + 2 + lastJoined.length + 4;
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(size);
+        buffer.putLong(data.uuid().getMostSignificantBits());
+        buffer.putLong(data.uuid().getLeastSignificantBits());
+
+        int flags = 0;
+        if (data.autoQueueDisabled())
+            flags |= FLAG_AUTO_QUEUE_DISABLED;
+        if (data.lastJoinedServer() != null)
+            flags |= FLAG_HAS_LAST_JOINED;
+
+        buffer.put((byte) flags);
+        buffer.putShort((short) lastJoined.length);
+        buffer.put(lastJoined);
+        buffer.putInt(checksum(buffer, size - 4));
+
+        return buffer.flip();
+    }
+
+    @VisibleForTesting
+    static PlayerData decode(ByteBuffer buffer) throws IOException {
+        final int size = buffer.getInt(0);
+        if (size != buffer.remaining() || buffer.getInt(size - 4) != checksum(buffer, size - 4))
+            throw new IOException("Corrupt record");
+
+        final UUID uuid = new UUID(buffer.getLong(4), buffer.getLong(12));
+        final int flags = buffer.get(20);
+        final int length = Short.toUnsignedInt(buffer.getShort(21));
+        if (4 + 16 + 1 + 2 + length + 4 != size)
+            throw new IOException("Corrupt record");
+
+        final String lastJoined = (flags & FLAG_HAS_LAST_JOINED) != 0 ? new String(buffer.array(), buffer.arrayOffset() + 23, length, StandardCharsets.UTF_8) : null;
+        return new PlayerData(uuid, lastJoined, (flags & FLAG_AUTO_QUEUE_DISABLED) != 0);
+    }
+
+    private static int checksum(ByteBuffer buffer, int end) {
+        final CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(4, end - 4));
+        return (int) crc.getValue();
+    }
+
+    private static UUID uuidOf(ByteBuffer record) {
+        return new UUID(record.getLong(4), record.getLong(12));
+    }
+
+    private record Location(int segment, long offset, int size) {}
+
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private long size;
+        // The bytes of records in this segment that are still the latest record of their player.
+        private long liveBytes;
+
+        private Segment(int id, Path path, FileChannel channel) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+        }
+
+        private void read(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0)
+                    throw new EOFException("Unexpected end of " + path.getFileName());
+            }
+        }
+
+        private void write(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining())
+                channel.write(buffer, position + buffer.position());
+        }
+
+        private void force() throws IOException {
+            channel.force(false);
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {}
+        }
+    }
+}
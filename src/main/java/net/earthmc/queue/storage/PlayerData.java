@@ -0,0 +1,12 @@
+package net.earthmc.queue.storage;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * The data of a player that is kept between sessions.
+ */
+@NullMarked
+public record PlayerData(UUID uuid, @Nullable String lastJoinedServer, boolean autoQueueDisabled) {}
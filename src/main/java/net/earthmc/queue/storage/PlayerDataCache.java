@@ -0,0 +1,124 @@
+package net.earthmc.queue.storage;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import net.earthmc.queue.config.QueueConfig;
+import net.earthmc.queue.metrics.StorageMetrics;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the data of recently seen players in memory, so that players who reconnect don't have to wait for storage again.
+ * <p>
+ * The cache is bounded by size and by the time since an entry was written, which also bounds how out of date an entry can be when the
+ * same storage is shared with other proxies. Entries are a single int, the id of the last joined server and the auto queue flag, and
+ * most stay within the range of integers that are never allocated.
+ */
+@NullMarked
+public class PlayerDataCache {
+    private final @Nullable Cache<UUID, Integer> cache;
+    private final @Nullable StorageMetrics metrics;
+    // Server names by id, there are only ever a handful so they are never removed.
+    private final Map<String, Integer> serverIds = new ConcurrentHashMap<>();
+    private final List<String> servers = new CopyOnWriteArrayList<>();
+
+    public PlayerDataCache(QueueConfig.CacheSettings settings, @Nullable StorageMetrics metrics) {
+        this.metrics = metrics;
+        this.cache = settings.maxSize() == 0 ? null : CacheBuilder.newBuilder()
+                .maximumSize(settings.maxSize())
+                .expireAfterWrite(settings.expireAfter())
+                .removalListener((RemovalNotification<UUID, Integer> notification) -> {
+                    if (notification.wasEvicted() && metrics != null)
+                        metrics.cacheEvictions().increment();
+                })
+                .build();
+
+        if (metrics != null)
+            metrics.cache(this);
+    }
+
+    /**
+     * @return Whether data is kept at all, the cache can be turned off by setting its size to 0.
+     */
+    public boolean enabled() {
+        return cache != null;
+    }
+
+    /**
+     * @return The cached data of a player, or null if they aren't cached.
+     */
+    public @Nullable PlayerData get(UUID uuid) {
+        if (cache == null)
+            return null;
+
+        final Integer value = cache.getIfPresent(uuid);
+        if (metrics != null)
+            metrics.cacheRequests(value != null).increment();
+
+        if (value == null)
+            return null;
+
+        final int serverId = (value >>> 1) - 1;
+        return new PlayerData(uuid, serverId == -1 ? null : servers.get(serverId), (value & 1) != 0);
+    }
+
+    /**
+     * @return Whether the data of a player is cached, without counting it as a cache request.
+     */
+    public boolean contains(UUID uuid) {
+        return cache != null && cache.getIfPresent(uuid) != null;
+    }
+
+    public void put(PlayerData data) {
+        if (cache != null)
+            cache.put(data.uuid(), encode(data));
+    }
+
+    /**
+     * Caches data that was loaded from storage, unless newer data was saved while it was being loaded.
+     */
+    public void putIfAbsent(PlayerData data) {
+        if (cache != null)
+            cache.asMap().putIfAbsent(data.uuid(), encode(data));
+    }
+
+    private int encode(PlayerData data) {
+        final int serverId = data.lastJoinedServer() == null ? -1 : serverId(data.lastJoinedServer());
+        return (serverId + 1) << 1 | (data.autoQueueDisabled() ? 1 : 0);
+    }
+
+    private int serverId(String server) {
+        final Integer id = serverIds.get(server);
+        if (id != null)
+            return id;
+
+        synchronized (servers) {
+            return serverIds.computeIfAbsent(server, k -> {
+                servers.add(k);
+                return servers.size() - 1;
+            });
+        }
+    }
+
+    public long size() {
+        return cache == null ? 0 : cache.size();
+    }
+
+    /**
+     * Empties the cache and stops reporting its size.
+     */
+    public void close() {
+        if (cache != null)
+            cache.invalidateAll();
+
+        if (metrics != null)
+            metrics.cache(null);
+    }
+}
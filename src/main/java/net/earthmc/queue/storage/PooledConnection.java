@@ -0,0 +1,139 @@
+package net.earthmc.queue.storage;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A connection borrowed from a {@link ConnectionPool}, closing it returns it to the pool.
+ * <p>
+ * Statements prepared through {@link #prepareStatement(String)} belong to the connection and are reused the next time the same sql is
+ * prepared on it, so they must not be closed by the caller. A connection may only be used by one thread at a time.
+ */
+@NullMarked
+public class PooledConnection implements AutoCloseable {
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private final int statementCacheSize;
+    // The least recently used statements first.
+    private final Map<String, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+    // Statements prepared while the cache was full, which are closed when the connection is returned.
+    private final List<PreparedStatement> uncached = new ArrayList<>();
+    private final long createdAt = System.nanoTime();
+    private long lastUsed = createdAt;
+    private boolean borrowed = true;
+    private boolean broken = false;
+
+    PooledConnection(ConnectionPool pool, Connection connection, int statementCacheSize) {
+        this.pool = pool;
+        this.connection = connection;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * @return The underlying connection, which should not be closed directly.
+     */
+    public Connection connection() {
+        return connection;
+    }
+
+    /**
+     * Prepares a statement, or returns the statement previously prepared for the same sql on this connection.
+     */
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        final PreparedStatement cached = statements.get(sql);
+        if (cached != null && !cached.isClosed()) {
+            cached.clearParameters();
+            return cached;
+        }
+
+        final PreparedStatement statement = connection.prepareStatement(sql);
+        if (statements.size() < statementCacheSize || cached != null) {
+            statements.put(sql, statement);
+        } else if (statementCacheSize > 0) {
+            // Replace the least recently used statement.
+            final Map.Entry<String, PreparedStatement> eldest = statements.entrySet().iterator().next();
+            statements.remove(eldest.getKey());
+            closeQuietly(eldest.getValue());
+            statements.put(sql, statement);
+        } else {
+            uncached.add(statement);
+        }
+
+        return statement;
+    }
+
+    /**
+     * Marks the connection as unusable, so that it is closed instead of being returned to the pool.
+     */
+    public void invalidate() {
+        this.broken = true;
+    }
+
+    /**
+     * Returns the connection to the pool.
+     */
+    @Override
+    public void close() {
+        if (!borrowed)
+            return;
+
+        borrowed = false;
+        lastUsed = System.nanoTime();
+
+        uncached.forEach(PooledConnection::closeQuietly);
+        uncached.clear();
+
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            broken = true;
+        }
+
+        pool.release(this);
+    }
+
+    void borrowed() {
+        this.borrowed = true;
+    }
+
+    boolean isBroken() {
+        try {
+            return broken || connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    long createdAt() {
+        return createdAt;
+    }
+
+    long lastUsed() {
+        return lastUsed;
+    }
+
+    void closePhysically() {
+        statements.values().forEach(PooledConnection::closeQuietly);
+        statements.clear();
+
+        try {
+            connection.close();
+        } catch (SQLException ignored) {}
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {}
+    }
+}
@@ -1,13 +1,160 @@
 package net.earthmc.queue.storage;
 
+import org.jspecify.annotations.NullMarked;
+import org.slf4j.Logger;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 
+/**
+ * The versions of the database schema, and the migrations between them.
+ * <p>
+ * Applied versions are recorded in {@code queue_schema_version}, so each migration only runs once instead of on every startup. Proxies
+ * that share a database take a named lock while migrating, so that only one of them applies a migration.
+ */
+@NullMarked
 public class SQLSchema {
-    public static Set<String> getPlayerColumns() {
-        Set<String> columns = new HashSet<>();
-        columns.add("`lastJoinedServer` mediumtext default null");
-        columns.add("`autoQueueDisabled` bool not null default 0");
-        return columns;
+    /**
+     * The conversion that copies the players in the old {@code queue_players} table to {@code queue_player_data}. This is done in the
+     * background by the storage rather than as a migration, since it can take a while on large tables.
+     */
+    public static final String PLAYERS_CONVERSION = "queue_player_data";
+
+    private static final String LOCK_NAME = "queue_schema";
+    private static final int LOCK_TIMEOUT_SECONDS = 30;
+
+    static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Create queue_players", statement -> {
+                statement.execute("create table if not exists queue_players (`uuid` varchar(36) not null, primary key (`uuid`))");
+                statement.execute("alter table queue_players add column if not exists `lastJoinedServer` mediumtext default null");
+                statement.execute("alter table queue_players add column if not exists `autoQueueDisabled` bool not null default 0");
+            }),
+            new Migration(2, "Create queue_servers and queue_player_data", statement -> {
+                statement.execute("create table if not exists queue_servers (`id` int not null auto_increment, `name` varchar(255) not null, primary key (`id`), unique key (`name`))");
+                statement.execute("create table if not exists queue_player_data (`uuid` binary(16) not null, `lastJoinedServer` int default null, `autoQueueDisabled` bool not null default 0, primary key (`uuid`), foreign key (`lastJoinedServer`) references queue_servers (`id`))");
+            }),
+            new Migration(3, "Create queue_conversions", statement -> {
+                statement.execute("create table if not exists queue_conversions (`name` varchar(64) not null, `lastCopied` varchar(36) not null default '', `finished` bool not null default 0, primary key (`name`))");
+            })
+    );
+
+    /**
+     * Applies all migrations that haven't been applied yet, in order.
+     *
+     * @return The versions that have been applied, including ones that were applied before.
+     */
+    public static Set<Integer> migrate(Connection connection, Logger logger) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists queue_schema_version (`version` int not null, `description` varchar(255) not null, `applied` timestamp not null default current_timestamp, primary key (`version`))");
+        }
+
+        lock(connection);
+        try {
+            final Set<Integer> applied = appliedVersions(connection);
+
+            for (Migration migration : MIGRATIONS) {
+                if (applied.contains(migration.version()))
+                    continue;
+
+                logger.info("Migrating the database to version {}: {}", migration.version(), migration.description());
+                try (Statement statement = connection.createStatement()) {
+                    migration.step().apply(statement);
+                }
+
+                record(connection, migration.version(), migration.description());
+                applied.add(migration.version());
+            }
+
+            return applied;
+        } finally {
+            unlock(connection);
+        }
+    }
+
+    public static Set<Integer> appliedVersions(Connection connection) throws SQLException {
+        final Set<Integer> versions = new HashSet<>();
+
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery("select version from queue_schema_version")) {
+            while (resultSet.next())
+                versions.add(resultSet.getInt(1));
+        }
+
+        return versions;
+    }
+
+    public static void record(Connection connection, int version, String description) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("insert ignore into queue_schema_version (version, description) values (?, ?)")) {
+            ps.setInt(1, version);
+            ps.setString(2, description);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * @return The progress of a background conversion, which hasn't copied anything yet if it has never run.
+     */
+    public static Conversion conversion(Connection connection, String name) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("select lastCopied, finished from queue_conversions where name = ?")) {
+            ps.setString(1, name);
+
+            try (ResultSet resultSet = ps.executeQuery()) {
+                if (!resultSet.next())
+                    return new Conversion("", false);
+
+                return new Conversion(resultSet.getString(1), resultSet.getBoolean(2));
+            }
+        }
+    }
+
+    public static void saveConversion(Connection connection, String name, Conversion conversion) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("insert into queue_conversions (name, lastCopied, finished) values (?, ?, ?) on duplicate key update lastCopied = values(lastCopied), finished = values(finished)")) {
+            ps.setString(1, name);
+            ps.setString(2, conversion.lastCopied());
+            ps.setBoolean(3, conversion.finished());
+            ps.executeUpdate();
+        }
+    }
+
+    private static void lock(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("select get_lock(?, ?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.setInt(2, LOCK_TIMEOUT_SECONDS);
+
+            try (ResultSet resultSet = ps.executeQuery()) {
+                if (!resultSet.next() || resultSet.getInt(1) != 1)
+                    throw new SQLException("Timed out while waiting for another proxy to migrate the database");
+            }
+        }
+    }
+
+    private static void unlock(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("select release_lock(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        }
+    }
+
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+    }
+
+    public record Migration(int version, String description, Step step) {}
+
+    /**
+     * @param lastCopied The key of the last row that has been copied, rows are copied in the order of their keys.
+     */
+    public record Conversion(String lastCopied, boolean finished) {}
+
+    @FunctionalInterface
+    public interface Step {
+        void apply(Statement statement) throws SQLException;
     }
 }
@@ -1,26 +1,70 @@
 package net.earthmc.queue.storage;
 
+import com.velocitypowered.api.scheduler.ScheduledTask;
 import net.earthmc.queue.QueuePlugin;
-import net.earthmc.queue.QueuedPlayer;
+import net.earthmc.queue.config.QueueConfig;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.slf4j.Logger;
 
-import java.sql.Connection;
 import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.concurrent.CompletableFuture;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Stores player data in a MySQL or MariaDB database.
+ * <p>
+ * Players are stored in {@code queue_player_data} by their binary uuid, with the last joined server as an id in {@code queue_servers}.
+ * Databases from before that are converted in the background: players are copied over from the old {@code queue_players} table a
+ * batch at a time, and players who haven't been copied yet are loaded from the old table in the meantime.
+ */
 public class SQLStorage extends Storage {
+    private static final int MAX_BATCH_SIZE = 100;
+    static final int CONVERSION_BATCH_SIZE = 500;
+
+    // Null when created by tests, which open the storage on a pool of their own instead of enabling it.
     private final QueuePlugin plugin;
+    // The time in seconds after which a query is cancelled, the same as the timeout of storage operations.
+    private final int queryTimeout;
     private String connectionUrl;
     private String username;
     private String password;
     private boolean enabled = false;
+    private ConnectionPool pool;
+    private ScheduledTask evictionTask;
+    private @Nullable ScheduledTask conversionTask;
+    // Server ids by name, the same names are saved over and over so they are only looked up once.
+    private final Map<String, Integer> serverIds = new ConcurrentHashMap<>();
+    private volatile boolean converted = false;
+    // The uuid of the last player that was copied from queue_players, only used by one storage thread at a time.
+    private String conversionCursor = "";
+    private int convertedPlayers = 0;
 
     public SQLStorage(@NotNull QueuePlugin plugin) {
+        super("sql", plugin.logger(), plugin.storageMetrics(), plugin.config().storageExecutorSettings(), plugin.config().cacheSettings());
         this.plugin = plugin;
+        this.queryTimeout = queryTimeout(plugin.config().storageExecutorSettings());
+    }
+
+    @VisibleForTesting
+    SQLStorage(@NotNull Logger logger, @NotNull QueueConfig.StorageExecutorSettings executorSettings, @NotNull QueueConfig.CacheSettings cacheSettings) {
+        super("sql", logger, null, executorSettings, cacheSettings);
+        this.plugin = null;
+        this.queryTimeout = queryTimeout(executorSettings);
     }
 
     @Override
@@ -29,7 +73,6 @@ public class SQLStorage extends Storage {
             return;
 
         plugin.logger().info("Enabling SQL storage.");
-        enabled = true;
 
         this.connectionUrl = "jdbc:mysql://" + plugin.config().getDatabaseHost() + ":" + plugin.config().getDatabasePort() + "/" + plugin.config().getDatabaseName() + plugin.config().getDatabaseFlags();
         this.username = plugin.config().getDatabaseUsername();
@@ -41,61 +84,280 @@ public class SQLStorage extends Storage {
             plugin.logger().error("while registering sql driver", e);
         }
 
-        try (Connection ignored = getConnection()) {
-            plugin.logger().info("Successfully connected to the database.");
+        final ConnectionPool pool = new ConnectionPool(() -> DriverManager.getConnection(this.connectionUrl, this.username, this.password), plugin.config().poolSettings(), plugin.storageMetrics());
+
+        try {
+            open(pool);
         } catch (SQLException e) {
-            enabled = false;
+            pool.close();
             throw e;
         }
 
-        // create default table
-        try (Connection connection = getConnection()) {
-            connection.createStatement().execute("create table if not exists queue_players (`uuid` varchar(36) not null, primary key (`uuid`))");
+        enabled = true;
+        plugin.storageMetrics().pool(pool);
+        this.evictionTask = plugin.proxy().getScheduler().buildTask(plugin, pool::evictIdle).repeat(30, TimeUnit.SECONDS).schedule();
+
+        if (!converted)
+            startConversion();
+    }
+
+    /**
+     * Connects to the database through the pool, and brings its schema up to date.
+     */
+    @VisibleForTesting
+    void open(ConnectionPool pool) throws SQLException {
+        this.pool = pool;
+
+        try (PooledConnection ignored = pool.borrow()) {
+            logger.info("Successfully connected to the database.");
+        }
+
+        // The connection is kept open by the pool, so statements created here have to be closed.
+        try (PooledConnection pooled = pool.borrow()) {
+            SQLSchema.migrate(pooled.connection(), logger);
+
+            final SQLSchema.Conversion conversion = SQLSchema.conversion(pooled.connection(), SQLSchema.PLAYERS_CONVERSION);
+            this.converted = conversion.finished();
+            this.conversionCursor = conversion.lastCopied();
 
-            for (String column : SQLSchema.getPlayerColumns()) {
-                connection.createStatement().execute("alter table queue_players add column if not exists " + column);
+            try (Statement statement = pooled.connection().createStatement(); ResultSet resultSet = statement.executeQuery("select id, name from queue_servers")) {
+                while (resultSet.next())
+                    serverIds.put(resultSet.getString("name"), resultSet.getInt("id"));
             }
         } catch (SQLException e) {
-            plugin.logger().error("An exception occurred when initializing queue_players table", e);
+            // Loads and saves would fail against a schema that isn't up to date, so let the plugin fall back to another storage.
+            throw new SQLException("Failed to migrate the database", e);
         }
     }
 
-    private Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(this.connectionUrl, this.username, this.password);
+    @Override
+    public void disable() {
+        super.disable();
+
+        if (!enabled)
+            return;
+
+        enabled = false;
+        evictionTask.cancel();
+        if (conversionTask != null)
+            conversionTask.cancel();
+        plugin.storageMetrics().pool(null);
+        pool.close();
+    }
+
+    /**
+     * Closes a connection instead of returning it to the pool if the exception means that it has been lost.
+     */
+    private static void invalidateIfLost(PooledConnection connection, SQLException e) {
+        // Sql states in class 08 are connection exceptions.
+        if (e.getSQLState() != null && e.getSQLState().startsWith("08"))
+            connection.invalidate();
     }
 
     @Override
-    public CompletableFuture<Void> loadPlayer(@NotNull QueuedPlayer player) {
-        return CompletableFuture.runAsync(() -> {
-            try (Connection connection = getConnection();
-                 PreparedStatement ps = connection.prepareStatement("SELECT * FROM queue_players WHERE uuid = ? LIMIT 1")) {
-                ps.setString(1, player.uuid().toString());
+    protected @Nullable PlayerData loadData(@NotNull UUID uuid) throws SQLException {
+        try (PooledConnection connection = pool.borrow()) {
+            try {
+                final PreparedStatement ps = connection.prepareStatement("select s.name, p.autoQueueDisabled from queue_player_data p left join queue_servers s on s.id = p.lastJoinedServer where p.uuid = ?");
+                ps.setQueryTimeout(queryTimeout);
+                ps.setBytes(1, SQLSchema.toBytes(uuid));
 
                 try (ResultSet resultSet = ps.executeQuery()) {
-                    if (resultSet.next()) {
-                        player.setLastJoinedServer(resultSet.getString("lastJoinedServer"));
-                        player.setAutoQueueDisabled(resultSet.getBoolean("autoQueueDisabled"));
-                    }
+                    if (resultSet.next())
+                        return new PlayerData(uuid, resultSet.getString(1), resultSet.getBoolean(2));
+                }
+
+                if (converted)
+                    return null;
+
+                // Not copied over yet.
+                final PreparedStatement legacy = connection.prepareStatement("select lastJoinedServer, autoQueueDisabled from queue_players where uuid = ?");
+                legacy.setQueryTimeout(queryTimeout);
+                legacy.setString(1, uuid.toString());
+
+                try (ResultSet resultSet = legacy.executeQuery()) {
+                    if (!resultSet.next())
+                        return null;
+
+                    return new PlayerData(uuid, resultSet.getString(1), resultSet.getBoolean(2));
                 }
             } catch (SQLException e) {
-                plugin.logger().error("while loading data for player {}", player.name(), e);
+                invalidateIfLost(connection, e);
+                throw e;
             }
-        });
+        }
     }
 
     @Override
-    public CompletableFuture<Void> savePlayer(@NotNull QueuedPlayer player) {
-        return CompletableFuture.runAsync(() -> {
-            try (Connection connection = getConnection();
-                PreparedStatement ps = connection.prepareStatement("replace into queue_players (uuid, autoQueueDisabled, lastJoinedServer) values (?, ?, ?)")) {
-                ps.setString(1, player.uuid().toString());
-                ps.setBoolean(2, player.isAutoQueueDisabled());
-                ps.setString(3, player.getLastJoinedServer().orElse(null));
-
-                ps.execute();
+    protected void saveData(@NotNull Collection<PlayerData> data) throws SQLException {
+        final List<PlayerData> players = new ArrayList<>(data);
+
+        try (PooledConnection connection = pool.borrow()) {
+            try {
+                resolveServerIds(connection, players);
+
+                // One multi-row upsert per batch, full batches use the same statement and can be reused from the statement cache.
+                for (int start = 0; start < players.size(); start += MAX_BATCH_SIZE) {
+                    final List<PlayerData> batch = players.subList(start, Math.min(players.size(), start + MAX_BATCH_SIZE));
+                    final PreparedStatement ps = connection.prepareStatement(insertStatement(batch.size(), false));
+                    ps.setQueryTimeout(queryTimeout);
+                    bindPlayers(ps, batch);
+                    ps.executeUpdate();
+                }
+            } catch (SQLException e) {
+                invalidateIfLost(connection, e);
+                throw e;
+            }
+        }
+    }
+
+    private static int queryTimeout(QueueConfig.StorageExecutorSettings executorSettings) {
+        return (int) Math.max(1, executorSettings.timeout().toSeconds());
+    }
+
+    /**
+     * Binds the players to an insert statement, the ids of their servers must have been resolved with {@link #resolveServerIds}.
+     */
+    private void bindPlayers(PreparedStatement ps, List<PlayerData> players) throws SQLException {
+        int index = 1;
+        for (PlayerData player : players) {
+            ps.setBytes(index++, SQLSchema.toBytes(player.uuid()));
+            ps.setBoolean(index++, player.autoQueueDisabled());
+
+            if (player.lastJoinedServer() == null)
+                ps.setNull(index++, Types.INTEGER);
+            else
+                ps.setInt(index++, serverIds.get(player.lastJoinedServer()));
+        }
+    }
+
+    /**
+     * Looks up the ids of the servers of the players, adding servers that don't have one yet. This has to be done before preparing the
+     * statement the players are bound to, since preparing more statements on the connection may evict it from the statement cache.
+     */
+    private void resolveServerIds(PooledConnection connection, List<PlayerData> players) throws SQLException {
+        for (PlayerData player : players) {
+            if (player.lastJoinedServer() != null)
+                serverId(connection, player.lastJoinedServer());
+        }
+    }
+
+    /**
+     * @param ignoreExisting Whether to keep players that already exist instead of replacing their data.
+     */
+    private static String insertStatement(int rows, boolean ignoreExisting) {
+        final String values = String.join(", ", Collections.nCopies(rows, "(?, ?, ?)"));
+
+        if (ignoreExisting)
+            return "insert ignore into queue_player_data (uuid, autoQueueDisabled, lastJoinedServer) values " + values;
+
+        return "insert into queue_player_data (uuid, autoQueueDisabled, lastJoinedServer) values " + values
+                + " on duplicate key update autoQueueDisabled = values(autoQueueDisabled), lastJoinedServer = values(lastJoinedServer)";
+    }
+
+    private int serverId(PooledConnection connection, String server) throws SQLException {
+        final Integer id = serverIds.get(server);
+        if (id != null)
+            return id;
+
+        final PreparedStatement insert = connection.prepareStatement("insert ignore into queue_servers (name) values (?)");
+        insert.setQueryTimeout(queryTimeout);
+        insert.setString(1, server);
+        insert.executeUpdate();
+
+        // Looked up rather than using the generated key, since another proxy may have inserted it first.
+        final PreparedStatement select = connection.prepareStatement("select id from queue_servers where name = ?");
+        select.setQueryTimeout(queryTimeout);
+        select.setString(1, server);
+
+        try (ResultSet resultSet = select.executeQuery()) {
+            if (!resultSet.next())
+                throw new SQLException("Server " + server + " was not found after inserting it");
+
+            serverIds.put(server, resultSet.getInt(1));
+            return resultSet.getInt(1);
+        }
+    }
+
+    /**
+     * Copies players from the old queue_players table a batch at a time, on the storage threads so that loads and saves can run in
+     * between batches. Players that were saved since are not overwritten, and a conversion that was interrupted by a restart continues
+     * after the last batch that was copied.
+     */
+    private void startConversion() {
+        final AtomicBoolean running = new AtomicBoolean();
+
+        plugin.logger().info("Copying players to the queue_player_data table in the background.");
+        this.conversionTask = plugin.proxy().getScheduler().buildTask(plugin, () -> {
+            if (converted || !running.compareAndSet(false, true))
+                return;
+
+            runAsync(() -> {
+                if (convertBatch()) {
+                    converted = true;
+                    plugin.logger().info("Finished copying {} players to the queue_player_data table, the queue_players table is no longer used and can be dropped.", convertedPlayers);
+                    if (conversionTask != null)
+                        conversionTask.cancel();
+                }
+            }).whenComplete((v, throwable) -> {
+                if (throwable != null)
+                    plugin.logger().error("An exception occurred when copying players to the queue_player_data table, retrying", throwable);
+
+                running.set(false);
+            });
+        }).repeat(1, TimeUnit.SECONDS).schedule();
+    }
+
+    /**
+     * Copies the next batch of players, and records how far the conversion has come so that it can continue there after a restart.
+     *
+     * @return Whether all players have been copied.
+     */
+    @VisibleForTesting
+    boolean convertBatch() throws SQLException {
+        try (PooledConnection connection = pool.borrow()) {
+            try {
+                final PreparedStatement select = connection.prepareStatement("select uuid, lastJoinedServer, autoQueueDisabled from queue_players where uuid > ? order by uuid limit " + CONVERSION_BATCH_SIZE);
+                select.setQueryTimeout(queryTimeout);
+                select.setString(1, conversionCursor);
+
+                final List<PlayerData> players = new ArrayList<>();
+                String lastCopied = conversionCursor;
+                int rows = 0;
+
+                try (ResultSet resultSet = select.executeQuery()) {
+                    while (resultSet.next()) {
+                        rows++;
+                        lastCopied = resultSet.getString(1);
+
+                        try {
+                            players.add(new PlayerData(UUID.fromString(lastCopied), resultSet.getString(2), resultSet.getBoolean(3)));
+                        } catch (IllegalArgumentException e) {
+                            logger.warn("Skipping player with invalid uuid '{}' in the queue_players table.", lastCopied);
+                        }
+                    }
+                }
+
+                if (!players.isEmpty()) {
+                    resolveServerIds(connection, players);
+
+                    final PreparedStatement insert = connection.prepareStatement(insertStatement(players.size(), true));
+                    insert.setQueryTimeout(queryTimeout);
+                    bindPlayers(insert, players);
+                    insert.executeUpdate();
+                }
+
+                // Only moved on once the batch has been copied, a batch that failed is copied again.
+                final boolean finished = rows < CONVERSION_BATCH_SIZE;
+                SQLSchema.saveConversion(connection.connection(), SQLSchema.PLAYERS_CONVERSION, new SQLSchema.Conversion(lastCopied, finished));
+                conversionCursor = lastCopied;
+
+                convertedPlayers += players.size();
+                return finished;
             } catch (SQLException e) {
-                plugin.logger().error("while saving data for player {}", player.name(), e);
+                invalidateIfLost(connection, e);
+                throw e;
             }
-        });
+        }
     }
 }
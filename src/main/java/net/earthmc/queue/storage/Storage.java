@@ -1,16 +1,213 @@
 package net.earthmc.queue.storage;
 
 import net.earthmc.queue.QueuedPlayer;
+import net.earthmc.queue.config.QueueConfig;
+import net.earthmc.queue.jfr.StorageLoadEvent;
+import net.earthmc.queue.jfr.StorageSaveEvent;
+import net.earthmc.queue.metrics.StorageMetrics;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Loads and saves player data.
+ * <p>
+ * Saves are written behind: {@link #savePlayer(QueuedPlayer)} only records the player's data if it has changed, replacing any
+ * earlier data of the same player that is still waiting to be written, and {@link #flush()} writes everything that is waiting in a
+ * single batch. Loads see data that is still waiting to be written, so a player that quickly reconnects gets their latest data.
+ * Loaded and saved data is also kept in a {@link PlayerDataCache}, which is checked before the storage itself.
+ */
 public abstract class Storage {
-    abstract public CompletableFuture<Void> loadPlayer(@NotNull QueuedPlayer player);
+    private final String name;
+    protected final Logger logger;
+    private final @Nullable StorageMetrics metrics;
+    private final StorageExecutor executor;
+    private final PlayerDataCache cache;
+    // Data waiting to be written, by player.
+    private final Map<UUID, PlayerData> pending = new ConcurrentHashMap<>();
+    // Data that is currently being written by a flush.
+    private final Map<UUID, PlayerData> writing = new ConcurrentHashMap<>();
+    // Prefetches that haven't completed yet, by player.
+    private final Map<UUID, CompletableFuture<Void>> prefetches = new ConcurrentHashMap<>();
 
-    abstract public CompletableFuture<Void> savePlayer(@NotNull QueuedPlayer player);
+    protected Storage(@NotNull String name, @NotNull Logger logger, @Nullable StorageMetrics metrics, @NotNull QueueConfig.StorageExecutorSettings executorSettings, @NotNull QueueConfig.CacheSettings cacheSettings) {
+        this.name = name;
+        this.logger = logger;
+        this.metrics = metrics;
+        this.executor = new StorageExecutor(name, executorSettings, logger, metrics);
+        this.cache = new PlayerDataCache(cacheSettings, metrics);
+    }
+
+    /**
+     * @return The saved data of a player, or null if nothing has been saved for them yet.
+     */
+    protected abstract @Nullable PlayerData loadData(@NotNull UUID uuid) throws Exception;
+
+    /**
+     * Writes the data of multiple players, called by one thread at a time.
+     */
+    protected abstract void saveData(@NotNull Collection<PlayerData> data) throws Exception;
+
+    /**
+     * Loads a player's data into the cache ahead of {@link #loadPlayer(QueuedPlayer)}, for players who are still logging in and may not
+     * end up joining. Nothing but the cached data is kept for them, so a player whose login is denied leaves nothing behind.
+     */
+    public CompletableFuture<Void> prefetch(@NotNull UUID uuid) {
+        if (!cache.enabled() || pending.containsKey(uuid) || writing.containsKey(uuid))
+            return CompletableFuture.completedFuture(null);
+
+        final CompletableFuture<Void> future = executor.run(() -> {
+            try {
+                // The load that follows looks the player up again, which is the one that counts as a cache request.
+                if (!cache.contains(uuid)) {
+                    final PlayerData data = loadData(uuid);
+                    cache.putIfAbsent(data != null ? data : new PlayerData(uuid, null, false));
+                }
+            } catch (Exception e) {
+                logger.warn("An exception occurred when prefetching data for {}", uuid, e);
+            }
+        });
+
+        prefetches.put(uuid, future);
+        future.whenComplete((v, t) -> prefetches.remove(uuid, future));
+        return future;
+    }
+
+    public CompletableFuture<Void> loadPlayer(@NotNull QueuedPlayer player) {
+        // Wait for a prefetch that is still loading the same data, it is usually about to finish.
+        final CompletableFuture<Void> prefetch = prefetches.get(player.uuid());
+        if (prefetch != null)
+            return prefetch.handle((v, t) -> null).thenCompose(v -> loadNow(player));
+
+        return loadNow(player);
+    }
+
+    private CompletableFuture<Void> loadNow(@NotNull QueuedPlayer player) {
+        return executor.run(() -> {
+            final StorageLoadEvent event = new StorageLoadEvent();
+            event.begin();
+            boolean successful = false;
+
+            try {
+                PlayerData data = pending.get(player.uuid());
+                if (data == null)
+                    data = writing.get(player.uuid());
+                if (data == null)
+                    data = cache.get(player.uuid());
+                if (data == null) {
+                    data = loadData(player.uuid());
+                    // Players without data are cached too, most players who join are already known or have never joined before.
+                    cache.putIfAbsent(data != null ? data : new PlayerData(player.uuid(), null, false));
+                }
+
+                if (data != null)
+                    player.load(data);
+
+                successful = true;
+            } catch (Exception e) {
+                logger.error("An exception occurred when loading data for {}", player.name(), e);
+            }
+
+            event.finish(name, player.name(), successful);
+        });
+    }
+
+    /**
+     * Queues the player's data to be written by the next flush, if it has changed since it was loaded or last saved.
+     */
+    public void savePlayer(@NotNull QueuedPlayer player) {
+        if (player.markSaved()) {
+            final PlayerData data = player.data();
+            pending.put(player.uuid(), data);
+            cache.put(data);
+        }
+    }
+
+    /**
+     * @return The amount of players whose data is waiting to be written.
+     */
+    public int pendingWrites() {
+        return pending.size();
+    }
+
+    /**
+     * Writes all data that is waiting to be written, in the background. The returned future completes once any flush that was
+     * already in progress has also completed.
+     */
+    public CompletableFuture<Void> flush() {
+        // A flush that is in progress still has to be waited for.
+        if (pending.isEmpty() && writing.isEmpty())
+            return CompletableFuture.completedFuture(null);
+
+        return executor.run(this::flushNow);
+    }
+
+    /**
+     * Runs a blocking operation on one of the storage's threads.
+     */
+    protected CompletableFuture<Void> runAsync(@NotNull StorageExecutor.Task task) {
+        return executor.run(task);
+    }
+
+    private synchronized void flushNow() {
+        final List<PlayerData> batch = new ArrayList<>(pending.size());
+        for (UUID uuid : pending.keySet()) {
+            final PlayerData data = pending.get(uuid);
+            if (data == null)
+                continue;
+
+            // Added to writing before being removed from pending, so that loads can always find it.
+            writing.put(uuid, data);
+            pending.remove(uuid, data);
+            batch.add(data);
+        }
+
+        if (batch.isEmpty())
+            return;
+
+        final StorageSaveEvent event = new StorageSaveEvent();
+        event.begin();
+        final long start = System.nanoTime();
+        boolean successful = false;
+
+        try {
+            saveData(batch);
+            successful = true;
+        } catch (Exception e) {
+            logger.error("An exception occurred when saving data for {} players, retrying on the next flush", batch.size(), e);
+
+            // Keep the data for the next flush, unless a newer save has come in since.
+            for (PlayerData data : batch)
+                pending.putIfAbsent(data.uuid(), data);
+        } finally {
+            for (PlayerData data : batch)
+                writing.remove(data.uuid(), data);
+        }
+
+        event.finish(name, batch.size(), successful);
+        if (metrics != null) {
+            metrics.saveTime().recordSince(start);
+            if (successful)
+                metrics.saves().add(batch.size());
+        }
+    }
 
     public void enable() throws Exception {}
 
-    public void disable() {}
+    /**
+     * Disables the storage after waiting for operations that are still queued, data that has not been flushed yet is lost. Storages
+     * that override this call it before closing their resources.
+     */
+    public void disable() {
+        executor.shutdown();
+        cache.close();
+    }
 }
@@ -0,0 +1,133 @@
+package net.earthmc.queue.storage;
+
+import net.earthmc.queue.config.QueueConfig;
+import net.earthmc.queue.metrics.StorageMetrics;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the blocking file and database operations of a storage on a small pool of its own threads, so that they never tie up the
+ * common pool that the proxy and other plugins share.
+ * <p>
+ * Operations wait in a bounded queue. When it is full, new operations fail right away instead of piling up, and operations that have
+ * not completed within the timeout fail as well. An operation that times out while still waiting in the queue is not run at all.
+ */
+@NullMarked
+public class StorageExecutor {
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+    private final Logger logger;
+    private final @Nullable StorageMetrics metrics;
+    // Whether the last operation was rejected, so that a full queue is only logged once until it has room again.
+    private final AtomicBoolean saturated = new AtomicBoolean();
+
+    public StorageExecutor(String name, QueueConfig.StorageExecutorSettings settings, Logger logger, @Nullable StorageMetrics metrics) {
+        final AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(settings.threads(), settings.threads(), 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(settings.queueSize()), task -> {
+            final Thread thread = new Thread(task, "Queue Storage (" + name + ") #" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timeout = settings.timeout();
+        this.logger = logger;
+        this.metrics = metrics;
+
+        if (metrics != null)
+            metrics.executor(this);
+    }
+
+    /**
+     * Queues an operation to run on a storage thread.
+     *
+     * @return A future that completes when the operation has run, or exceptionally with a {@link RejectedExecutionException} if the
+     * queue is full or a {@link TimeoutException} if it took too long.
+     */
+    public CompletableFuture<Void> run(Task task) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        final long submitted = System.nanoTime();
+
+        try {
+            executor.execute(() -> {
+                if (metrics != null)
+                    metrics.executorWaitTime().recordSince(submitted);
+
+                if (future.isDone())
+                    return;
+
+                try {
+                    task.run();
+                    future.complete(null);
+                } catch (Throwable throwable) {
+                    future.completeExceptionally(throwable);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (metrics != null)
+                metrics.executorRejections().increment();
+
+            if (!executor.isShutdown() && saturated.compareAndSet(false, true))
+                logger.warn("The storage queue is full, player data is not being loaded or saved until it has room again.");
+
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        saturated.set(false);
+        future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((v, throwable) -> {
+            if (throwable instanceof TimeoutException && metrics != null)
+                metrics.executorTimeouts().increment();
+        });
+
+        return future;
+    }
+
+    /**
+     * @return The amount of operations waiting for a thread.
+     */
+    public int queued() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return The amount of threads that are running an operation.
+     */
+    public int active() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Stops accepting new operations and waits for queued operations to complete, interrupting them if they take longer than the timeout.
+     */
+    public void shutdown() {
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                logger.warn("Timed out while waiting for {} storage operations to complete.", executor.getQueue().size() + executor.getActiveCount());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        if (metrics != null)
+            metrics.executor(null);
+    }
+
+    @FunctionalInterface
+    public interface Task {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,55 @@
+package net.earthmc.queue;
+
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageBufferTests {
+    @Test
+    void testMessagesAreJoined() {
+        final List<Component> received = new ArrayList<>();
+        final QueuedPlayer player = player(received);
+        final MessageBuffer buffer = new MessageBuffer();
+
+        buffer.add(player, Component.text("first"));
+        buffer.add(player, Component.text("second"));
+        assertTrue(received.isEmpty());
+
+        buffer.flush();
+        assertEquals(1, received.size());
+        assertEquals("first\nsecond", PlainTextComponentSerializer.plainText().serialize(received.getFirst()));
+
+        // A single message is sent as is.
+        final Component single = Component.text("single");
+        buffer.add(player, single);
+        buffer.flush();
+        assertSame(single, received.get(1));
+
+        buffer.flush();
+        assertEquals(2, received.size());
+    }
+
+    private static QueuedPlayer player(List<Component> received) {
+        final Audience audience = new Audience() {
+            @Override
+            public void sendMessage(@NotNull Component message) {
+                received.add(message);
+            }
+        };
+
+        return new QueuedPlayer(UUID.randomUUID(), "player", new Priority("none", 0, Component.empty())) {
+            @Override
+            public @NotNull Audience audience() {
+                return audience;
+            }
+        };
+    }
+}
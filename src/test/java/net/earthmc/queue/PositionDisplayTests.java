@@ -0,0 +1,96 @@
+package net.earthmc.queue;
+
+import net.earthmc.queue.config.QueueConfig.DisplayMode;
+import net.earthmc.queue.object.MessageTemplate;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.bossbar.BossBar;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionDisplayTests {
+    private static final MessageTemplate TEMPLATE = MessageTemplate.parse("<position>/<size> <eta>", "position", "size", "eta");
+
+    @Test
+    void testBossBarIsReused() {
+        final RecordingAudience audience = new RecordingAudience();
+        final PositionDisplay display = new PositionDisplay();
+
+        display.update(audience, DisplayMode.BOSSBAR, 4, 10, "1m", TEMPLATE);
+        assertEquals(1, audience.shown.size());
+        final BossBar bossBar = audience.shown.getFirst();
+        assertEquals("5/10 1m", plain(bossBar.name()));
+        assertEquals(0.6f, bossBar.progress(), 0.001f);
+
+        // Unchanged values don't touch the boss bar.
+        bossBar.name(Component.text("untouched"));
+        display.update(audience, DisplayMode.BOSSBAR, 4, 10, "1m", TEMPLATE);
+        assertEquals("untouched", plain(bossBar.name()));
+
+        display.update(audience, DisplayMode.BOSSBAR, 0, 9, "1m", TEMPLATE);
+        assertEquals(1, audience.shown.size());
+        assertEquals("1/9 1m", plain(bossBar.name()));
+        assertEquals(1f, bossBar.progress(), 0.001f);
+
+        display.hide(audience);
+        assertEquals(List.of(bossBar), audience.hidden);
+    }
+
+    @Test
+    void testActionBarOnlySentOnChange() {
+        final RecordingAudience audience = new RecordingAudience();
+        final PositionDisplay display = new PositionDisplay();
+
+        display.update(audience, DisplayMode.ACTIONBAR, 2, 3, "1m", TEMPLATE);
+        display.update(audience, DisplayMode.ACTIONBAR, 2, 3, "1m", TEMPLATE);
+        display.update(audience, DisplayMode.ACTIONBAR, 1, 3, "1m", TEMPLATE);
+        display.update(audience, DisplayMode.ACTIONBAR, 1, 3, "50s", TEMPLATE);
+
+        assertEquals(List.of("3/3 1m", "2/3 1m", "2/3 50s"), audience.actionBars);
+    }
+
+    @Test
+    void testSwitchingModes() {
+        final RecordingAudience audience = new RecordingAudience();
+        final PositionDisplay display = new PositionDisplay();
+
+        display.update(audience, DisplayMode.BOSSBAR, 0, 1, "1m", TEMPLATE);
+        display.update(audience, DisplayMode.NONE, 0, 1, "1m", TEMPLATE);
+        assertEquals(audience.shown, audience.hidden);
+        assertTrue(audience.actionBars.isEmpty());
+
+        display.update(audience, DisplayMode.ACTIONBAR, 0, 1, "1m", TEMPLATE);
+        assertEquals(List.of("1/1 1m"), audience.actionBars);
+    }
+
+    private static String plain(Component component) {
+        return PlainTextComponentSerializer.plainText().serialize(component);
+    }
+
+    private static class RecordingAudience implements Audience {
+        private final List<BossBar> shown = new ArrayList<>();
+        private final List<BossBar> hidden = new ArrayList<>();
+        private final List<String> actionBars = new ArrayList<>();
+
+        @Override
+        public void showBossBar(@NotNull BossBar bar) {
+            shown.add(bar);
+        }
+
+        @Override
+        public void hideBossBar(@NotNull BossBar bar) {
+            hidden.add(bar);
+        }
+
+        @Override
+        public void sendActionBar(@NotNull Component message) {
+            actionBars.add(plain(message));
+        }
+    }
+}
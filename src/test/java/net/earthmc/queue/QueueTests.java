@@ -1,14 +1,24 @@
 package net.earthmc.queue;
 
+import net.earthmc.queue.config.QueueConfig;
+import net.earthmc.queue.impl.local.IndexedSubQueue;
 import net.earthmc.queue.impl.local.LocalQueue;
 import net.earthmc.queue.impl.local.LocalSubQueue;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -98,4 +108,177 @@ public class QueueTests {
         // getRegularQueue should return the last element in the sub queues set
         assertEquals("regular", queue.getRegularQueue().name());
     }
+
+    @Test
+    void testWeightedInsertion() {
+        for (SubQueue subQueue : List.of(new LocalSubQueue("regular", 0, 1), new IndexedSubQueue("regular", 0, 1))) {
+            Queue queue = new LocalQueue(List.of(subQueue));
+
+            QueuedPlayer first = player(0);
+            QueuedPlayer second = player(0);
+            QueuedPlayer donator = player(2);
+            QueuedPlayer priority = player(1);
+            QueuedPlayer otherDonator = player(2);
+
+            assertEquals(0, queue.addToQueue(first, subQueue));
+            assertEquals(1, queue.addToQueue(second, subQueue));
+            // Higher weights are inserted in front of the first player with a lower weight
+            assertEquals(0, queue.addToQueue(donator, subQueue));
+            assertEquals(1, queue.addToQueue(priority, subQueue));
+            // Players with an equal weight keep their join order
+            assertEquals(1, queue.addToQueue(otherDonator, subQueue));
+
+            assertEquals(List.of(donator, otherDonator, priority, first, second), new ArrayList<>(subQueue.players()));
+            for (int i = 0; i < 5; i++)
+                assertEquals(i, subQueue.playerPosition(new ArrayList<>(subQueue.players()).get(i)));
+        }
+    }
+
+    @Test
+    void testWeightedInsertionAfterPriorityChange() {
+        for (SubQueue subQueue : List.of(new LocalSubQueue("regular", 0, 1), new IndexedSubQueue("regular", 0, 1))) {
+            Queue queue = new LocalQueue(List.of(subQueue));
+
+            final AtomicInteger weight = new AtomicInteger(2);
+            QueuedPlayer changing = new QueuedPlayer(UUID.randomUUID(), "changing", new Priority("none", 0, Component.empty())) {
+                @Override
+                public @NotNull Priority priority() {
+                    return new Priority("weight" + weight.get(), weight.get(), Component.empty());
+                }
+            };
+            QueuedPlayer first = player(0);
+
+            assertEquals(0, queue.addToQueue(changing, subQueue));
+            assertEquals(1, queue.addToQueue(first, subQueue));
+
+            // The player lost their priority, so a player with a higher weight now goes in front of them.
+            weight.set(0);
+            subQueue.priorityChanged(changing);
+
+            QueuedPlayer priority = player(1);
+            assertEquals(0, queue.addToQueue(priority, subQueue));
+            assertEquals(List.of(priority, changing, first), new ArrayList<>(subQueue.players()));
+        }
+    }
+
+    @Test
+    void testRememberedPositionInsertion() {
+        for (SubQueue subQueue : List.of(new LocalSubQueue("regular", 0, 1), new IndexedSubQueue("regular", 0, 1))) {
+            Queue queue = new LocalQueue(List.of(subQueue));
+
+            for (int i = 0; i < 4; i++)
+                queue.addToQueue(player(0), subQueue);
+
+            // A remembered position is used as long as no lower weighted player comes before it
+            QueuedPlayer remembered = player(0);
+            queue.rememberPosition(remembered.uuid(), 2);
+            assertEquals(2, queue.addToQueue(remembered, subQueue));
+
+            QueuedPlayer rememberedDonator = player(2);
+            queue.rememberPosition(rememberedDonator.uuid(), 3);
+            assertEquals(0, queue.addToQueue(rememberedDonator, subQueue));
+
+            QueuedPlayer rememberedHead = player(0);
+            queue.rememberPosition(rememberedHead.uuid(), 0);
+            assertEquals(0, queue.addToQueue(rememberedHead, subQueue));
+
+            assertEquals(4, subQueue.playerPosition(remembered));
+            assertEquals(7, subQueue.players().size());
+        }
+    }
+
+    @Test
+    void testProgressNotifications() {
+        final AtomicInteger messages = new AtomicInteger();
+        final Audience audience = new Audience() {
+            @Override
+            public void sendMessage(@NotNull Component message) {
+                messages.incrementAndGet();
+            }
+        };
+
+        for (int i = 0; i < 30; i++) {
+            regular.addToTail(new QueuedPlayer(UUID.randomUUID(), "player", new Priority("none", 0, Component.empty())) {
+                @Override
+                public @NotNull Audience audience() {
+                    return audience;
+                }
+            });
+        }
+
+        // Players that haven't been told their position yet are always notified.
+        queue.sendProgressMessages(regular);
+        assertEquals(30, messages.getAndSet(0));
+
+        // Moving up a single position only notifies players where that is at least 5% of their last position.
+        regular.removeFirst();
+        regular.lastPositionMessageTime(Instant.EPOCH);
+        queue.sendProgressMessages(regular);
+        assertEquals(20, messages.getAndSet(0));
+
+        // Players that haven't moved aren't notified again.
+        regular.lastPositionMessageTime(Instant.EPOCH);
+        queue.sendProgressMessages(regular);
+        assertEquals(0, messages.get());
+    }
+
+    @Test
+    void testProgressBroadcastOnlyVisitsDuePlayers() {
+        final QueueConfig.NotificationSettings settings = new QueueConfig.NotificationSettings(10, 5, Duration.ofSeconds(30), false, true);
+        final Audience audience = new Audience() {};
+
+        for (int i = 0; i < 1000; i++) {
+            regular.addToTail(new QueuedPlayer(UUID.randomUUID(), "player", new Priority("none", 0, Component.empty())) {
+                @Override
+                public @NotNull Audience audience() {
+                    return audience;
+                }
+            });
+        }
+
+        queue.sendProgressMessages(regular);
+
+        // After a single send only the players close enough to the front for one position to be 5% are due.
+        regular.removeFirst();
+        final Instant now = Instant.now();
+        final List<QueuedPlayer> close = regular.progress().due(now, settings);
+        close.removeIf(player -> !regular.hasPlayer(player));
+        assertEquals(20, close.size());
+
+        // Like the broadcast would, since none of them have been told their new position.
+        for (QueuedPlayer player : close)
+            regular.progress().reschedule(player, regular.playerPosition(player), now, settings);
+
+        // The rest are due once enough players have been sent to move them up by the full step.
+        for (int i = 0; i < 9; i++)
+            regular.removeFirst();
+
+        final List<QueuedPlayer> due = regular.progress().due(now, settings);
+        due.removeIf(player -> !regular.hasPlayer(player));
+        assertEquals(990, due.size());
+        assertEquals(regular.playerSet(), Set.copyOf(due));
+    }
+
+    @Test
+    void testRemoveKeepsStateOfOtherQueue() {
+        final Queue other = new LocalQueue(List.of(new LocalSubQueue("regular", 0, 1)));
+        final QueuedPlayer player = player(0);
+        regular.addToTail(player);
+        player.queue(queue);
+
+        // The player joined the other queue before this queue got to removing them.
+        final Instant notifiedAt = Instant.now();
+        player.queue(other);
+        player.notifiedPosition(3, notifiedAt);
+        queue.remove(player);
+
+        assertFalse(regular.hasPlayer(player));
+        assertEquals(other, player.queue());
+        assertEquals(3, player.lastNotifiedPosition());
+        assertEquals(notifiedAt, player.lastNotifiedTime());
+    }
+
+    private static QueuedPlayer player(int weight) {
+        return new QueuedPlayer(UUID.randomUUID(), "player", new Priority("weight" + weight, weight, Component.empty()));
+    }
 }
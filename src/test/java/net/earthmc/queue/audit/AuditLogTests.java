@@ -0,0 +1,119 @@
+package net.earthmc.queue.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AuditLogTests {
+    @Test
+    void testRecordsAreDrainedInOrder() throws IOException {
+        final AuditLog log = new AuditLog(16, null, 1024, 0, null);
+        final UUID uuid = UUID.randomUUID();
+        final int queue = AuditLog.id("towny");
+        final int subQueue = AuditLog.id("regular");
+
+        log.record(AuditEvent.ENQUEUE, uuid, queue, subQueue);
+        log.record(AuditEvent.SENT, uuid, queue, subQueue);
+        log.record(AuditEvent.PAUSE, null, queue, -1);
+
+        final StringWriter out = new StringWriter();
+        assertEquals(3, log.drainTo(out));
+
+        final String[] lines = out.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].endsWith(" ENQUEUE " + uuid + " towny regular"));
+        assertTrue(lines[1].endsWith(" SENT " + uuid + " towny regular"));
+        assertTrue(lines[2].endsWith(" PAUSE " + new UUID(0, 0) + " towny -"));
+
+        assertEquals(0, log.drainTo(new StringWriter()));
+    }
+
+    @Test
+    void testFullBufferDropsRecords() throws IOException {
+        final AuditLog log = new AuditLog(4, null, 1024, 0, null);
+        for (int i = 0; i < 6; i++)
+            log.record(AuditEvent.ENQUEUE, UUID.randomUUID(), 0, 0);
+
+        assertEquals(2, log.dropped());
+        assertEquals(4, log.drainTo(new StringWriter()));
+
+        // Draining frees up the buffer again.
+        log.record(AuditEvent.LEAVE, UUID.randomUUID(), 0, 0);
+        assertEquals(1, log.drainTo(new StringWriter()));
+    }
+
+    @Test
+    void testConcurrentProducers() throws Exception {
+        final int threads = 4;
+        final int perThread = 10_000;
+        final AuditLog log = new AuditLog(threads * perThread, null, 1024, 0, null);
+
+        final List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < perThread; i++)
+                    log.record(AuditEvent.ENQUEUE, UUID.randomUUID(), 0, 0);
+            });
+            producers.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : producers)
+            thread.join();
+
+        assertEquals(0, log.dropped());
+        assertEquals(threads * perThread, log.drainTo(new StringWriter()));
+    }
+
+    @Test
+    void testFailedRollKeepsWriting() throws Exception {
+        final Path directory = Files.createTempDirectory("queue-audit-log");
+        // A non-empty directory in place of the rolled over file makes rolling fail after the log file has been closed.
+        Files.createDirectories(directory.resolve("audit.1.log").resolve("blocker"));
+
+        final AuditLog log = new AuditLog(64, directory, 1024, 1, null);
+        log.start();
+
+        for (int i = 0; i < 32; i++)
+            log.record(AuditEvent.ENQUEUE, UUID.randomUUID(), 0, 0);
+
+        final Path file = directory.resolve("audit.log");
+        final long deadline = System.nanoTime() + 5_000_000_000L;
+        while (Files.size(file) < 1024 && System.nanoTime() < deadline)
+            Thread.sleep(10);
+
+        // Give the drain thread time to try rolling over.
+        Thread.sleep(300);
+
+        for (int i = 0; i < 8; i++)
+            log.record(AuditEvent.SENT, UUID.randomUUID(), 0, 0);
+        log.stop();
+
+        try {
+            assertEquals(40, Files.readAllLines(file).size());
+            assertEquals(0, log.dropped());
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path path : files.sorted(Comparator.reverseOrder()).toList())
+                    Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    void testIdsAreStable() {
+        final int id = AuditLog.id("hub");
+        assertEquals(id, AuditLog.id("hub"));
+        assertNotEquals(id, AuditLog.id("towny-2"));
+    }
+}
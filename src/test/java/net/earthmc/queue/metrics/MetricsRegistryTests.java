@@ -0,0 +1,60 @@
+package net.earthmc.queue.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsRegistryTests {
+    @Test
+    void testHistogramBuckets() {
+        assertEquals(0, Histogram.bucket(0));
+        assertEquals(0, Histogram.bucket(1));
+        assertEquals(1, Histogram.bucket(2));
+        assertEquals(2, Histogram.bucket(3));
+        assertEquals(2, Histogram.bucket(4));
+        assertEquals(3, Histogram.bucket(5));
+        assertEquals(10, Histogram.bucket(1024));
+        assertEquals(11, Histogram.bucket(1025));
+        assertEquals(Histogram.MAX_EXPONENT + 1, Histogram.bucket(Long.MAX_VALUE));
+
+        final Histogram histogram = new Histogram();
+        histogram.record(Duration.ofMillis(3));
+        histogram.recordMillis(-5);
+        assertEquals(2, histogram.count());
+        assertEquals(3, histogram.sumMillis());
+    }
+
+    @Test
+    void testSameMetricIsReturned() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        final Counter counter = registry.counter("sends_total", "Sends.", "queue", "towny");
+
+        assertSame(counter, registry.counter("sends_total", "Sends.", "queue", "towny"));
+        assertNotSame(counter, registry.counter("sends_total", "Sends.", "queue", "hub"));
+        assertThrows(IllegalArgumentException.class, () -> registry.histogram("sends_total", "Sends.", "queue", "towny"));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("other_total", "Other.", "queue"));
+    }
+
+    @Test
+    void testScrape() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("sends_total", "Sends.", "queue", "towny").add(3);
+        registry.gauge("players", "Players.", () -> 7, "queue", "to\"wny");
+        final Histogram histogram = registry.histogram("wait_seconds", "Wait.");
+        histogram.recordMillis(1);
+        histogram.recordMillis(1500);
+
+        final String scrape = registry.scrape();
+        assertTrue(scrape.contains("# HELP sends_total Sends.\n# TYPE sends_total counter\nsends_total{queue=\"towny\"} 3\n"));
+        assertTrue(scrape.contains("players{queue=\"to\\\"wny\"} 7\n"));
+        assertTrue(scrape.contains("# TYPE wait_seconds histogram\n"));
+        assertTrue(scrape.contains("wait_seconds_bucket{le=\"0.001\"} 1\n"));
+        assertTrue(scrape.contains("wait_seconds_bucket{le=\"1.024\"} 1\n"));
+        assertTrue(scrape.contains("wait_seconds_bucket{le=\"2.048\"} 2\n"));
+        assertTrue(scrape.contains("wait_seconds_bucket{le=\"+Inf\"} 2\n"));
+        assertTrue(scrape.contains("wait_seconds_sum 1.501\n"));
+        assertTrue(scrape.contains("wait_seconds_count 2\n"));
+    }
+}
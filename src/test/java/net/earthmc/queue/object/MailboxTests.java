@@ -0,0 +1,139 @@
+package net.earthmc.queue.object;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MailboxTests {
+    // Drains scheduled by the mailbox, which the tests run by hand.
+    private final ArrayDeque<Runnable> drains = new ArrayDeque<>();
+    private final List<Throwable> exceptions = new ArrayList<>();
+    private final Mailbox mailbox = new Mailbox(drains::add, exceptions::add);
+
+    @Test
+    void testTasksRunInOrder() {
+        final List<Integer> ran = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final int task = i;
+            mailbox.execute(() -> ran.add(task));
+        }
+
+        // Only a single drain is scheduled, no matter how many tasks are submitted.
+        assertEquals(1, drains.size());
+        drains.poll().run();
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), ran);
+        assertEquals(0, mailbox.pendingTasks());
+        assertTrue(drains.isEmpty());
+    }
+
+    @Test
+    void testTaskSubmittedWhileDraining() {
+        final List<String> ran = new ArrayList<>();
+        mailbox.execute(() -> {
+            ran.add("first");
+            mailbox.execute(() -> ran.add("submitted while draining"));
+
+            // The running drain picks it up, so no second drain is scheduled.
+            assertTrue(drains.isEmpty());
+        });
+        mailbox.execute(() -> ran.add("second"));
+
+        drains.poll().run();
+        assertEquals(List.of("first", "second", "submitted while draining"), ran);
+        assertTrue(drains.isEmpty());
+
+        // Once the drain is done, the next task schedules a new one.
+        mailbox.execute(() -> ran.add("after"));
+        assertEquals(1, drains.size());
+        drains.poll().run();
+        assertEquals("after", ran.getLast());
+    }
+
+    @Test
+    void testDrainHandsBackTheExecutor() {
+        final AtomicInteger ran = new AtomicInteger();
+        final int tasks = Mailbox.MAX_TASKS_PER_DRAIN + 10;
+        for (int i = 0; i < tasks; i++)
+            mailbox.execute(ran::incrementAndGet);
+
+        drains.poll().run();
+        assertEquals(Mailbox.MAX_TASKS_PER_DRAIN, ran.get());
+        assertEquals(10, mailbox.pendingTasks());
+
+        // The remaining tasks are picked up by a new drain instead of being left behind.
+        assertEquals(1, drains.size());
+        drains.poll().run();
+        assertEquals(tasks, ran.get());
+        assertTrue(drains.isEmpty());
+    }
+
+    @Test
+    void testDrainingContinuesAfterException() {
+        final IllegalStateException exception = new IllegalStateException("task failed");
+        final List<String> ran = new ArrayList<>();
+        mailbox.execute(() -> ran.add("before"));
+        mailbox.execute(() -> {
+            throw exception;
+        });
+        mailbox.execute(() -> ran.add("after"));
+
+        drains.poll().run();
+        assertEquals(List.of("before", "after"), ran);
+        assertEquals(List.of(exception), exceptions);
+    }
+
+    @Test
+    void testConcurrentProducers() throws InterruptedException {
+        final int threads = 4;
+        final int perThread = 10_000;
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(threads * perThread);
+        final Mailbox mailbox = new Mailbox(executor, exceptions::add);
+
+        try {
+            runProducers(mailbox, threads, perThread, () -> {
+                // Only one drain may run at a time.
+                if (running.incrementAndGet() != 1)
+                    overlaps.incrementAndGet();
+
+                running.decrementAndGet();
+                done.countDown();
+            });
+
+            // Nothing is lost when a task is added just as a drain resets its flag.
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(0, overlaps.get());
+            assertEquals(0, mailbox.pendingTasks());
+            assertTrue(exceptions.isEmpty());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void runProducers(Mailbox mailbox, int threads, int perThread, Runnable task) throws InterruptedException {
+        final List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < perThread; i++)
+                    mailbox.execute(task);
+            });
+            producers.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : producers)
+            thread.join();
+    }
+}
@@ -0,0 +1,61 @@
+package net.earthmc.queue.object;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageTemplateTests {
+    @Test
+    void testRenderPlaceholders() {
+        MessageTemplate template = MessageTemplate.parse("<yellow>Position <green><position></green> of <size>", "position", "size");
+
+        Component message = template.render(3, 10);
+        assertEquals("Position 3 of 10", plain(message));
+
+        List<Component> parts = message.children();
+        assertEquals(4, parts.size());
+        assertEquals(NamedTextColor.YELLOW, parts.get(0).color());
+        // Placeholders keep the style of where they were in the template.
+        assertEquals(NamedTextColor.GREEN, parts.get(1).color());
+        assertEquals(NamedTextColor.YELLOW, parts.get(3).color());
+    }
+
+    @Test
+    void testStaticPartsAreReused() {
+        MessageTemplate template = MessageTemplate.parse("<yellow>Position <green><position></green>", "position");
+        assertSame(template.render(1).children().get(0), template.render(2).children().get(0));
+
+        MessageTemplate noPlaceholders = MessageTemplate.parse("<red>You are not in a queue.");
+        assertSame(noPlaceholders.render(), noPlaceholders.render());
+    }
+
+    @Test
+    void testBind() {
+        MessageTemplate template = MessageTemplate.parse("<server>: <position>/<size> on <server>", "server", "position", "size");
+        MessageTemplate bound = template.bind("server", "Towny");
+
+        assertEquals("Towny: 1/2 on Towny", plain(bound.render(1, 2)));
+        assertThrows(IllegalArgumentException.class, () -> bound.render(1, 2, 3));
+        // Binding a placeholder the template doesn't have leaves it unchanged.
+        assertSame(bound, bound.bind("server", "Other"));
+    }
+
+    @Test
+    void testValuesAreNotParsed() {
+        MessageTemplate template = MessageTemplate.parse("<gray>Reason: <i><reason></i>", "reason");
+
+        Component message = template.render("<red>not red");
+        assertEquals("Reason: <red>not red", plain(message));
+        assertTrue(message.children().get(1).hasDecoration(TextDecoration.ITALIC));
+    }
+
+    private static String plain(Component component) {
+        return PlainTextComponentSerializer.plainText().serialize(component);
+    }
+}
@@ -0,0 +1,104 @@
+package net.earthmc.queue.object;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderStatisticTreeTests {
+    @Test
+    void testInsertionOrder() {
+        OrderStatisticTree<Integer> tree = new OrderStatisticTree<>();
+        tree.addLast(2);
+        tree.addFirst(1);
+        tree.addLast(4);
+        assertTrue(tree.addAfter(3, 2));
+
+        assertEquals(4, tree.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i + 1, tree.get(i));
+            assertEquals(i, tree.indexOf(i + 1));
+        }
+
+        Iterator<Integer> iterator = tree.iterator();
+        for (int i = 1; i <= 4; i++)
+            assertEquals(i, iterator.next());
+
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    void testRemoval() {
+        OrderStatisticTree<Integer> tree = new OrderStatisticTree<>();
+        for (int i = 0; i < 5; i++)
+            tree.addLast(i);
+
+        assertTrue(tree.remove(2));
+        assertFalse(tree.remove(2));
+        assertFalse(tree.contains(2));
+        assertEquals(-1, tree.indexOf(2));
+        assertEquals(2, tree.indexOf(3));
+
+        assertEquals(0, tree.removeFirst());
+        assertEquals(1, tree.getFirst());
+        assertEquals(3, tree.size());
+    }
+
+    @Test
+    void testInvalidOperations() {
+        OrderStatisticTree<Integer> tree = new OrderStatisticTree<>();
+        assertThrows(NoSuchElementException.class, tree::removeFirst);
+        assertFalse(tree.addAfter(1, 2));
+
+        tree.addLast(1);
+        assertThrows(IllegalArgumentException.class, () -> tree.addLast(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.add(3, 2));
+    }
+
+    @Test
+    void testMatchesList() {
+        // Run a random mix of operations against both the tree and a plain list, and compare the result after every step.
+        final Random random = new Random(42);
+        final OrderStatisticTree<Integer> tree = new OrderStatisticTree<>();
+        final List<Integer> list = new ArrayList<>();
+
+        for (int value = 0; value < 5000; value++) {
+            final int operation = random.nextInt(4);
+
+            if (operation == 0 || list.isEmpty()) {
+                final int index = random.nextInt(list.size() + 1);
+                tree.add(index, value);
+                list.add(index, value);
+            } else if (operation == 1) {
+                final Integer anchor = list.get(random.nextInt(list.size()));
+                tree.addAfter(value, anchor);
+                list.add(list.indexOf(anchor) + 1, value);
+            } else if (operation == 2) {
+                final Integer removed = list.remove(random.nextInt(list.size()));
+                assertTrue(tree.remove(removed));
+            } else {
+                assertEquals(list.remove(0), tree.removeFirst());
+            }
+
+            assertEquals(list.size(), tree.size());
+            if (!list.isEmpty()) {
+                final Integer sample = list.get(random.nextInt(list.size()));
+                assertEquals(list.indexOf(sample), tree.indexOf(sample));
+            }
+        }
+
+        assertEquals(list, toList(tree));
+        assertEquals(list.size(), tree.values().size());
+    }
+
+    private static List<Integer> toList(OrderStatisticTree<Integer> tree) {
+        final List<Integer> values = new ArrayList<>();
+        tree.forEach(values::add);
+        return values;
+    }
+}
@@ -0,0 +1,103 @@
+package net.earthmc.queue.object;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateControllerTests {
+    private static final Duration FAST = Duration.ofMillis(50);
+
+    @Test
+    void testAdditiveIncrease() {
+        RateController controller = new RateController(4, 2);
+        assertEquals(1, controller.window());
+
+        // Roughly one full window of successes grows the window by one.
+        controller.onSuccess(FAST);
+        assertEquals(2, controller.window());
+
+        controller.onSuccess(FAST);
+        controller.onSuccess(FAST);
+        controller.onSuccess(FAST);
+        assertEquals(3, controller.window());
+
+        for (int i = 0; i < 100; i++)
+            controller.onSuccess(FAST);
+
+        assertEquals(4, controller.window());
+    }
+
+    @Test
+    void testMultiplicativeDecrease() {
+        RateController controller = grown(8);
+
+        controller.onFailure();
+        assertEquals(4, controller.window());
+
+        // Failures reported by sends that were in flight during the cut don't cut the window again.
+        controller.onFailure();
+        controller.onFailure();
+        controller.onFailure();
+        assertEquals(4, controller.window());
+
+        controller.onFailure();
+        assertEquals(2, controller.window());
+        assertEquals(2, controller.decreases());
+    }
+
+    @Test
+    void testLatencyIncreaseDecreasesWindow() {
+        RateController controller = grown(8);
+
+        for (int i = 0; i < 8; i++)
+            controller.onSuccess(Duration.ofMillis(500));
+
+        assertTrue(controller.window() < 8);
+        assertTrue(controller.decreases() > 0);
+    }
+
+    @Test
+    void testFastOutlierAgesOut() {
+        RateController controller = new RateController(8, 2);
+
+        // A single connect that is much faster than the rest makes every following one look congested at first.
+        controller.onSuccess(Duration.ofMillis(1));
+        for (int i = 0; i < 32; i++)
+            controller.onSuccess(Duration.ofMillis(100));
+
+        assertEquals(1, controller.window());
+
+        // Once the outlier is no longer among the recent samples, the steady latency becomes the base and the window grows again.
+        for (int i = 0; i < 256; i++)
+            controller.onSuccess(Duration.ofMillis(100));
+
+        assertEquals(8, controller.window());
+    }
+
+    @Test
+    void testWindowLimits() {
+        RateController controller = grown(8);
+
+        controller.maxWindow(3);
+        assertEquals(3, controller.window());
+
+        for (int i = 0; i < 10; i++)
+            controller.onFailure();
+
+        assertEquals(1, controller.window());
+
+        controller.reset();
+        assertEquals(1, controller.window());
+        assertEquals(-1, controller.averageLatency());
+    }
+
+    private static RateController grown(int window) {
+        final RateController controller = new RateController(window, 2);
+        while (controller.window() < window)
+            controller.onSuccess(FAST);
+
+        return controller;
+    }
+}
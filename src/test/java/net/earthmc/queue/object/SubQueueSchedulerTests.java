@@ -0,0 +1,83 @@
+package net.earthmc.queue.object;
+
+import net.earthmc.queue.QueuedPlayer;
+import net.earthmc.queue.SubQueue;
+import net.earthmc.queue.impl.local.LocalSubQueue;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SubQueueSchedulerTests {
+    private final SubQueue premium = new LocalSubQueue("premium", 5, 3);
+    private final SubQueue priority = new LocalSubQueue("priority", 1, 1);
+    private final SubQueue regular = new LocalSubQueue("regular", 0, 1);
+    private final List<SubQueue> subQueues = List.of(premium, priority, regular);
+
+    @Test
+    void testSendRatios() {
+        fill(premium, priority, regular);
+        SubQueueScheduler scheduler = new SubQueueScheduler("test", subQueues, regular);
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(premium, scheduler.next(false));
+            assertEquals(premium, scheduler.next(false));
+            assertEquals(premium, scheduler.next(false));
+            assertEquals(priority, scheduler.next(false));
+            assertEquals(regular, scheduler.next(false));
+        }
+    }
+
+    @Test
+    void testSkipsEmptySubQueues() {
+        SubQueueScheduler scheduler = new SubQueueScheduler("test", subQueues, regular);
+        assertEquals(regular, scheduler.next(false));
+
+        fill(priority);
+        assertEquals(priority, scheduler.next(true));
+        assertEquals(priority, scheduler.next(false));
+
+        // Priority has used its only send, but is still returned since the other sub queues are empty.
+        assertEquals(priority, scheduler.next(false));
+    }
+
+    @Test
+    void testUpdateMaxSends() {
+        fill(premium, priority, regular);
+        SubQueueScheduler scheduler = new SubQueueScheduler("test", subQueues, regular);
+        scheduler.updateMaxSends(Map.of("premium", 1));
+
+        assertEquals(premium, scheduler.next(false));
+        assertEquals(priority, scheduler.next(false));
+        assertEquals(regular, scheduler.next(false));
+        assertEquals(premium, scheduler.next(false));
+    }
+
+    @Test
+    void testMatchesRatio() {
+        // Randomly empty and fill sub queues, and check that the scheduler keeps making the same choices as a ratio.
+        final Random random = new Random(7);
+        final SubQueueScheduler scheduler = new SubQueueScheduler("test", subQueues, regular);
+        final Ratio<SubQueue> ratio = new Ratio<>(subQueues);
+
+        for (int i = 0; i < 2000; i++) {
+            final SubQueue subQueue = subQueues.get(random.nextInt(subQueues.size()));
+            if (random.nextBoolean())
+                subQueue.addPlayer(Mockito.mock(QueuedPlayer.class));
+            else if (!subQueue.players().isEmpty())
+                subQueue.removeFirst();
+
+            final boolean dry = random.nextInt(3) == 0;
+            assertEquals(ratio.next(dry, s -> !s.players().isEmpty(), regular), scheduler.next(dry));
+        }
+    }
+
+    private static void fill(SubQueue... subQueues) {
+        for (SubQueue subQueue : subQueues)
+            subQueue.addPlayer(Mockito.mock(QueuedPlayer.class));
+    }
+}
@@ -0,0 +1,99 @@
+package net.earthmc.queue.object;
+
+import net.earthmc.queue.QueuedPlayer;
+import net.earthmc.queue.SubQueue;
+import net.earthmc.queue.config.Messages;
+import net.earthmc.queue.impl.local.LocalSubQueue;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ThroughputEstimatorTests {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final SubQueue priority = new LocalSubQueue("priority", 1, 1);
+    private final SubQueue regular = new LocalSubQueue("regular", 0, 3);
+    private final List<SubQueue> subQueues = List.of(priority, regular);
+
+    @Test
+    void testUnknownUntilTwoSends() {
+        final ThroughputEstimator estimator = new ThroughputEstimator(subQueues);
+        assertEquals(Optional.empty(), estimator.estimate(regular, 0));
+        assertEquals(-1.0, estimator.sendsPerMinute());
+
+        estimator.onSend(regular, 0);
+        assertEquals(Optional.empty(), estimator.estimate(regular, 0));
+
+        estimator.onSend(regular, SECOND);
+        assertTrue(estimator.estimate(regular, 0).isPresent());
+        assertEquals(60, estimator.sendsPerMinute(), 0.001);
+    }
+
+    @Test
+    void testEstimateUsesShares() {
+        fill(priority, regular);
+        final ThroughputEstimator estimator = new ThroughputEstimator(subQueues);
+
+        // Send a player every second, one from priority for every three from regular.
+        long time = 0;
+        for (int i = 0; i < 200; i++) {
+            estimator.onSend(i % 4 == 0 ? priority : regular, time);
+            time += SECOND;
+        }
+
+        assertEquals(0.25, estimator.share(priority), 0.1);
+        assertEquals(0.75, estimator.share(regular), 0.1);
+
+        // The 3rd player in regular gets sent in about 4 seconds, the 3rd player in priority in about 12.
+        assertEquals(4, estimator.estimate(regular, 2).orElseThrow().toSeconds(), 1);
+        assertEquals(12, estimator.estimate(priority, 2).orElseThrow().toSeconds(), 4);
+    }
+
+    @Test
+    void testEmptySubQueueKeepsShare() {
+        fill(regular);
+        final ThroughputEstimator estimator = new ThroughputEstimator(subQueues);
+
+        long time = 0;
+        for (int i = 0; i < 200; i++) {
+            estimator.onSend(regular, time);
+            time += SECOND;
+        }
+
+        // Priority had no players competing for sends, so its share is still its configured ratio.
+        assertEquals(0.25, estimator.share(priority), 0.001);
+        assertEquals(1, estimator.share(regular), 0.01);
+    }
+
+    @Test
+    void testRestartIgnoresIdleTime() {
+        final ThroughputEstimator estimator = new ThroughputEstimator(subQueues);
+        estimator.onSend(regular, 0);
+        estimator.onSend(regular, SECOND);
+
+        estimator.restart();
+        estimator.onSend(regular, 1000 * SECOND);
+        assertEquals(60, estimator.sendsPerMinute(), 0.001);
+    }
+
+    @Test
+    void testFormatEta() {
+        assertEquals("unknown", Messages.formatEta(Optional.empty()));
+        assertEquals("10s", Messages.formatEta(Optional.of(Duration.ofSeconds(3))));
+        assertEquals("50s", Messages.formatEta(Optional.of(Duration.ofSeconds(41))));
+        assertEquals("2m", Messages.formatEta(Optional.of(Duration.ofSeconds(61))));
+        assertEquals("1h 0m", Messages.formatEta(Optional.of(Duration.ofMinutes(60))));
+        assertEquals("2h 5m", Messages.formatEta(Optional.of(Duration.ofMinutes(125))));
+    }
+
+    private static void fill(SubQueue... subQueues) {
+        for (SubQueue subQueue : subQueues)
+            subQueue.addPlayer(Mockito.mock(QueuedPlayer.class));
+    }
+}
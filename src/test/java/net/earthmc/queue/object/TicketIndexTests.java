@@ -0,0 +1,128 @@
+package net.earthmc.queue.object;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketIndexTests {
+    @Test
+    void testPositions() {
+        TicketIndex<String> index = new TicketIndex<>();
+        index.addLast("b");
+        index.addLast("c");
+        index.addFirst("a");
+
+        assertEquals(0, index.position("a"));
+        assertEquals(1, index.position("b"));
+        assertEquals(2, index.position("c"));
+        assertEquals(-1, index.position("d"));
+    }
+
+    @Test
+    void testRemovalLeavesNoGaps() {
+        TicketIndex<String> index = new TicketIndex<>();
+        index.addLast("a");
+        index.addLast("b");
+        index.addLast("c");
+        index.addLast("d");
+
+        assertTrue(index.remove("b"));
+        assertFalse(index.remove("b"));
+        assertEquals(0, index.position("a"));
+        assertEquals(1, index.position("c"));
+        assertEquals(2, index.position("d"));
+
+        index.remove("a");
+        assertEquals(0, index.position("c"));
+        assertEquals(1, index.position("d"));
+    }
+
+    @Test
+    void testRebuild() {
+        TicketIndex<String> index = new TicketIndex<>();
+        index.addLast("a");
+        index.addLast("c");
+        index.rebuild(List.of("a", "b", "c"));
+
+        assertEquals(1, index.position("b"));
+        assertEquals(2, index.position("c"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void testMatchesList() {
+        // Enough operations to make the index run out of slots on both ends and compact itself several times.
+        final Random random = new Random(7);
+        final TicketIndex<Integer> index = new TicketIndex<>();
+        final List<Integer> list = new ArrayList<>();
+
+        for (int value = 0; value < 20000; value++) {
+            final int operation = random.nextInt(5);
+
+            if (operation <= 1 || list.isEmpty()) {
+                index.addLast(value);
+                list.add(value);
+            } else if (operation == 2) {
+                index.addFirst(value);
+                list.add(0, value);
+            } else if (operation == 3) {
+                assertTrue(index.remove(list.remove(random.nextInt(list.size()))));
+            } else {
+                assertTrue(index.remove(list.remove(0)));
+            }
+
+            if (!list.isEmpty()) {
+                final int position = random.nextInt(list.size());
+                assertEquals(position, index.position(list.get(position)));
+            }
+        }
+
+        for (int i = 0; i < list.size(); i++)
+            assertEquals(i, index.position(list.get(i)));
+    }
+
+    @Test
+    void testMiddleInsertsMatchList() {
+        final Random random = new Random(11);
+        final TicketIndex<Integer> index = new TicketIndex<>();
+        final List<Integer> list = new ArrayList<>();
+
+        for (int value = 0; value < 20000; value++) {
+            if (!list.isEmpty() && random.nextInt(4) == 0) {
+                assertTrue(index.remove(list.remove(random.nextInt(list.size()))));
+            } else {
+                final int position = random.nextInt(list.size() + 1);
+                index.add(position, value);
+                list.add(position, value);
+            }
+        }
+
+        for (int i = 0; i < list.size(); i++)
+            assertEquals(i, index.position(list.get(i)));
+    }
+
+    @Test
+    void testInsertsDoNotRenumberTheQueue() {
+        final TicketIndex<Integer> index = new TicketIndex<>();
+        for (int value = 0; value < 4096; value++)
+            index.addLast(value);
+
+        // Appends leave room in between, so a single insert in the middle doesn't move anyone.
+        final long appended = index.reissued();
+        index.add(2048, -1);
+        assertEquals(appended, index.reissued());
+        assertEquals(2048, index.position(-1));
+        assertEquals(2049, index.position(2048));
+
+        // Inserting at the same spot over and over only spreads out the tickets around it, far fewer than the size of the queue.
+        for (int value = 4096; value < 8192; value++)
+            index.add(1024, value);
+
+        assertEquals(1024, index.position(8191));
+        assertTrue(index.reissued() - appended < 4096L * 64, "reissued " + index.reissued() + " tickets");
+    }
+}
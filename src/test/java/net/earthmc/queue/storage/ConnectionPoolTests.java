@@ -0,0 +1,138 @@
+package net.earthmc.queue.storage;
+
+import net.earthmc.queue.config.QueueConfig;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTests {
+    private static ConnectionPool pool(int maxSize, Duration idleTimeout) {
+        // Every pool gets its own in-memory database, which is kept until the last connection to it is closed.
+        final String url = "jdbc:h2:mem:" + UUID.randomUUID();
+        final QueueConfig.PoolSettings settings = new QueueConfig.PoolSettings(maxSize, Duration.ofMillis(100), idleTimeout, Duration.ZERO, 4);
+
+        return new ConnectionPool(() -> DriverManager.getConnection(url), settings, null);
+    }
+
+    @Test
+    void testConnectionsAndStatementsAreReused() throws SQLException {
+        final ConnectionPool pool = pool(2, Duration.ofMinutes(10));
+
+        final Connection first;
+        final PreparedStatement statement;
+        try (PooledConnection connection = pool.borrow()) {
+            first = connection.connection();
+            statement = connection.prepareStatement("select 1");
+            assertSame(statement, connection.prepareStatement("select 1"));
+        }
+
+        assertEquals(0, pool.active());
+        assertEquals(1, pool.idle());
+
+        try (PooledConnection connection = pool.borrow()) {
+            assertSame(first, connection.connection());
+            assertSame(statement, connection.prepareStatement("select 1"));
+            assertEquals(1, pool.active());
+        }
+
+        pool.close();
+        assertTrue(first.isClosed());
+    }
+
+    @Test
+    void testQueries() throws SQLException {
+        final ConnectionPool pool = pool(2, Duration.ofMinutes(10));
+
+        try (PooledConnection connection = pool.borrow(); Statement statement = connection.connection().createStatement()) {
+            statement.execute("create table players (uuid varchar(36) primary key, server varchar(64))");
+        }
+
+        final UUID uuid = UUID.randomUUID();
+        for (String server : new String[]{"towny", "nations"}) {
+            try (PooledConnection connection = pool.borrow()) {
+                final PreparedStatement ps = connection.prepareStatement("merge into players (uuid, server) key (uuid) values (?, ?)");
+                ps.setString(1, uuid.toString());
+                ps.setString(2, server);
+                ps.execute();
+            }
+        }
+
+        try (PooledConnection connection = pool.borrow()) {
+            final PreparedStatement ps = connection.prepareStatement("select server from players where uuid = ?");
+            ps.setString(1, uuid.toString());
+
+            try (ResultSet resultSet = ps.executeQuery()) {
+                assertTrue(resultSet.next());
+                assertEquals("nations", resultSet.getString("server"));
+            }
+        }
+
+        pool.close();
+    }
+
+    @Test
+    void testBorrowTimesOutWhenExhausted() throws SQLException {
+        final ConnectionPool pool = pool(2, Duration.ofMinutes(10));
+
+        final PooledConnection first = pool.borrow();
+        final PooledConnection second = pool.borrow();
+        assertNotSame(first.connection(), second.connection());
+        assertThrows(SQLTimeoutException.class, pool::borrow);
+
+        second.close();
+        second.close();
+        assertEquals(1, pool.active());
+
+        try (PooledConnection third = pool.borrow()) {
+            assertSame(second.connection(), third.connection());
+        }
+
+        first.close();
+        pool.close();
+    }
+
+    @Test
+    void testIdleConnectionsAreEvicted() throws SQLException {
+        final ConnectionPool pool = pool(2, Duration.ZERO);
+
+        final PooledConnection first = pool.borrow();
+        final PooledConnection second = pool.borrow();
+        first.close();
+        second.close();
+        assertEquals(2, pool.idle());
+
+        assertEquals(2, pool.evictIdle());
+        assertEquals(0, pool.idle());
+        assertTrue(first.connection().isClosed());
+
+        pool.close();
+    }
+
+    @Test
+    void testInvalidatedConnectionsAreClosed() throws SQLException {
+        final ConnectionPool pool = pool(1, Duration.ofMinutes(10));
+
+        final PooledConnection connection = pool.borrow();
+        connection.invalidate();
+        connection.close();
+
+        assertTrue(connection.connection().isClosed());
+        assertEquals(0, pool.idle());
+
+        try (PooledConnection replacement = pool.borrow()) {
+            assertNotSame(connection.connection(), replacement.connection());
+        }
+
+        pool.close();
+    }
+}
@@ -0,0 +1,198 @@
+package net.earthmc.queue.storage;
+
+import net.earthmc.queue.config.QueueConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogStorageTests {
+    private Path directory;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        this.directory = Files.createTempDirectory("queue-log-storage");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+                Files.delete(file);
+        }
+    }
+
+    private LogStorage open(long segmentSize) throws IOException {
+        final LogStorage storage = new LogStorage(directory.resolve("storage"), directory.resolve("data"), segmentSize, NOPLogger.NOP_LOGGER, null, new QueueConfig.StorageExecutorSettings(1, 16, Duration.ofSeconds(5)), new QueueConfig.CacheSettings(1000, Duration.ofMinutes(30)));
+        storage.enable();
+        return storage;
+    }
+
+    @Test
+    void testEncoding() throws IOException {
+        final PlayerData data = new PlayerData(UUID.randomUUID(), "tøwny", true);
+        assertEquals(data, LogStorage.decode(LogStorage.encode(data)));
+
+        final PlayerData empty = new PlayerData(UUID.randomUUID(), null, false);
+        assertEquals(empty, LogStorage.decode(LogStorage.encode(empty)));
+
+        final ByteBuffer corrupt = LogStorage.encode(data);
+        corrupt.put(10, (byte) (corrupt.get(10) ^ 1));
+        assertThrows(IOException.class, () -> LogStorage.decode(corrupt));
+    }
+
+    @Test
+    void testDataSurvivesReopening() throws IOException {
+        final UUID first = UUID.randomUUID();
+        final UUID second = UUID.randomUUID();
+
+        LogStorage storage = open(1024 * 1024);
+        storage.saveData(List.of(new PlayerData(first, "towny", false), new PlayerData(second, "nations", true)));
+        storage.saveData(List.of(new PlayerData(first, "hub", true)));
+        assertEquals(new PlayerData(first, "hub", true), storage.loadData(first));
+        assertNull(storage.loadData(UUID.randomUUID()));
+        storage.disable();
+
+        storage = open(1024 * 1024);
+        assertEquals(2, storage.players());
+        assertEquals(new PlayerData(first, "hub", true), storage.loadData(first));
+        assertEquals(new PlayerData(second, "nations", true), storage.loadData(second));
+        storage.disable();
+    }
+
+    @Test
+    void testPartialRecordIsDiscarded() throws IOException {
+        final UUID uuid = UUID.randomUUID();
+
+        LogStorage storage = open(1024 * 1024);
+        storage.saveData(List.of(new PlayerData(uuid, "towny", false)));
+        storage.disable();
+
+        // Half of a second record, as if the proxy crashed while writing it.
+        final Path segment;
+        try (Stream<Path> files = Files.list(directory.resolve("storage"))) {
+            segment = files.filter(file -> file.toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        final ByteBuffer partial = LogStorage.encode(new PlayerData(uuid, "nations", true));
+        Files.write(segment, java.util.Arrays.copyOf(partial.array(), partial.remaining() / 2), StandardOpenOption.APPEND);
+
+        storage = open(1024 * 1024);
+        assertEquals(new PlayerData(uuid, "towny", false), storage.loadData(uuid));
+
+        // New records are appended where the partial record started.
+        storage.saveData(List.of(new PlayerData(uuid, "hub", false)));
+        storage.disable();
+
+        storage = open(1024 * 1024);
+        assertEquals(new PlayerData(uuid, "hub", false), storage.loadData(uuid));
+        storage.disable();
+    }
+
+    @Test
+    void testCompaction() throws IOException {
+        final List<UUID> uuids = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            uuids.add(UUID.randomUUID());
+
+        final LogStorage storage = open(1);
+
+        // Every save starts a new segment, and overwrites all records in the previous ones.
+        for (int round = 0; round < 5; round++) {
+            final List<PlayerData> batch = new ArrayList<>();
+            for (UUID uuid : uuids)
+                batch.add(new PlayerData(uuid, "server-" + round, round % 2 == 0));
+
+            storage.saveData(batch);
+        }
+
+        // Wait for any compaction that was started in the background.
+        while (storage.compact() > 0);
+        assertEquals(1, storage.segments());
+
+        for (UUID uuid : uuids)
+            assertEquals(new PlayerData(uuid, "server-4", true), storage.loadData(uuid));
+
+        storage.disable();
+    }
+
+    @Test
+    void testFlatFilesAreImported() throws IOException {
+        final UUID uuid = UUID.randomUUID();
+        Files.createDirectories(directory.resolve("data"));
+        Files.writeString(directory.resolve("data").resolve(uuid + ".txt"), "lastJoinedServer=towny\nautoQueueDisabled=true\n");
+        Files.writeString(directory.resolve("data").resolve("not-a-player.txt"), "");
+
+        LogStorage storage = open(1024 * 1024);
+        assertEquals(1, storage.players());
+        assertEquals(new PlayerData(uuid, "towny", true), storage.loadData(uuid));
+        storage.saveData(List.of(new PlayerData(uuid, "nations", true)));
+        storage.disable();
+
+        // Only imported once.
+        storage = open(1024 * 1024);
+        assertEquals(new PlayerData(uuid, "nations", true), storage.loadData(uuid));
+        storage.disable();
+    }
+
+    @Test
+    void testNewerFlatFilesAreImportedAgain() throws IOException {
+        final UUID changed = UUID.randomUUID();
+        final UUID unchanged = UUID.randomUUID();
+        final Path data = Files.createDirectories(directory.resolve("data"));
+        Files.writeString(data.resolve(changed + ".txt"), "lastJoinedServer=towny\n");
+        Files.writeString(data.resolve(unchanged + ".txt"), "lastJoinedServer=towny\n");
+
+        LogStorage storage = open(1024 * 1024);
+        storage.saveData(List.of(new PlayerData(changed, "nations", false), new PlayerData(unchanged, "nations", false)));
+        storage.disable();
+
+        // A flat file changed, but flat file storage didn't save anything since, so the directory isn't looked through.
+        final Path file = data.resolve(changed + ".txt");
+        final FileTime later = FileTime.from(Files.getLastModifiedTime(directory.resolve("storage").resolve("imported")).toInstant().plusSeconds(60));
+        Files.writeString(file, "lastJoinedServer=capital\n");
+        Files.setLastModifiedTime(file, later);
+
+        storage = open(1024 * 1024);
+        assertEquals(new PlayerData(changed, "nations", false), storage.loadData(changed));
+        storage.disable();
+
+        // Flat file storage was used for a while, and saved one of the players.
+        Files.setLastModifiedTime(file, FileTime.from(later.toInstant().plusSeconds(60)));
+        Files.createFile(data.resolve(FlatFileStorage.SAVED_MARKER));
+        Files.setLastModifiedTime(data.resolve(FlatFileStorage.SAVED_MARKER), FileTime.from(later.toInstant().plusSeconds(60)));
+
+        storage = open(1024 * 1024);
+        assertEquals(new PlayerData(changed, "capital", false), storage.loadData(changed));
+        assertEquals(new PlayerData(unchanged, "nations", false), storage.loadData(unchanged));
+        storage.disable();
+    }
+
+    @Test
+    void testUnreadableFlatFilesAreSkipped() throws IOException {
+        final UUID readable = UUID.randomUUID();
+        final Path data = Files.createDirectories(directory.resolve("data"));
+        Files.createDirectory(data.resolve(UUID.randomUUID() + ".txt"));
+        Files.writeString(data.resolve(UUID.randomUUID() + ".txt"), "lastJoinedServer=\\uZZZZ\n");
+        Files.writeString(data.resolve(readable + ".txt"), "lastJoinedServer=towny\n");
+
+        final LogStorage storage = open(1024 * 1024);
+        assertEquals(1, storage.players());
+        assertEquals(new PlayerData(readable, "towny", false), storage.loadData(readable));
+        storage.disable();
+    }
+}
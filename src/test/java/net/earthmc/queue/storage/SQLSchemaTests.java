@@ -0,0 +1,115 @@
+package net.earthmc.queue.storage;
+
+import net.earthmc.queue.config.QueueConfig;
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SQLSchemaTests {
+    /**
+     * Creates an in-memory H2 database that behaves like MySQL, with get_lock and release_lock always succeeding.
+     *
+     * @return The url of the database, which is kept until the tests exit.
+     */
+    static String database() throws SQLException {
+        final String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+        try (Connection connection = DriverManager.getConnection(url); Statement statement = connection.createStatement()) {
+            statement.execute("create alias get_lock for '" + SQLSchemaTests.class.getName() + ".getLock'");
+            statement.execute("create alias release_lock for '" + SQLSchemaTests.class.getName() + ".releaseLock'");
+        }
+
+        return url;
+    }
+
+    static ConnectionPool pool(String url, int statementCacheSize) {
+        final QueueConfig.PoolSettings settings = new QueueConfig.PoolSettings(2, Duration.ofSeconds(1), Duration.ofMinutes(10), Duration.ZERO, statementCacheSize);
+        return new ConnectionPool(() -> DriverManager.getConnection(url), settings, null);
+    }
+
+    public static int getLock(String name, int timeout) {
+        return 1;
+    }
+
+    public static int releaseLock(String name) {
+        return 1;
+    }
+
+    @Test
+    void testMigrationsAreOrdered() {
+        int previous = 0;
+
+        for (SQLSchema.Migration migration : SQLSchema.MIGRATIONS) {
+            assertTrue(migration.version() > previous, "migration " + migration.version() + " is out of order");
+            previous = migration.version();
+        }
+    }
+
+    @Test
+    void testMigrate() throws SQLException {
+        final Set<Integer> versions = SQLSchema.MIGRATIONS.stream().map(SQLSchema.Migration::version).collect(Collectors.toSet());
+
+        try (Connection connection = DriverManager.getConnection(database()); Statement statement = connection.createStatement()) {
+            assertEquals(versions, SQLSchema.migrate(connection, NOPLogger.NOP_LOGGER));
+            assertEquals(versions, SQLSchema.appliedVersions(connection));
+
+            for (String table : new String[]{"queue_players", "queue_servers", "queue_player_data", "queue_conversions"}) {
+                try (ResultSet resultSet = statement.executeQuery("select count(*) from " + table)) {
+                    assertTrue(resultSet.next());
+                    assertEquals(0, resultSet.getInt(1));
+                }
+            }
+
+            // Applied migrations aren't run or recorded again.
+            statement.execute("insert into queue_servers (name) values ('towny')");
+            assertEquals(versions, SQLSchema.migrate(connection, NOPLogger.NOP_LOGGER));
+
+            try (ResultSet resultSet = statement.executeQuery("select count(*) from queue_schema_version")) {
+                assertTrue(resultSet.next());
+                assertEquals(versions.size(), resultSet.getInt(1));
+            }
+
+            try (ResultSet resultSet = statement.executeQuery("select name from queue_servers")) {
+                assertTrue(resultSet.next());
+                assertEquals("towny", resultSet.getString(1));
+            }
+        }
+    }
+
+    @Test
+    void testConversionProgress() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(database())) {
+            SQLSchema.migrate(connection, NOPLogger.NOP_LOGGER);
+            assertEquals(new SQLSchema.Conversion("", false), SQLSchema.conversion(connection, SQLSchema.PLAYERS_CONVERSION));
+
+            final SQLSchema.Conversion started = new SQLSchema.Conversion(UUID.randomUUID().toString(), false);
+            SQLSchema.saveConversion(connection, SQLSchema.PLAYERS_CONVERSION, started);
+            assertEquals(started, SQLSchema.conversion(connection, SQLSchema.PLAYERS_CONVERSION));
+
+            final SQLSchema.Conversion finished = new SQLSchema.Conversion(UUID.randomUUID().toString(), true);
+            SQLSchema.saveConversion(connection, SQLSchema.PLAYERS_CONVERSION, finished);
+            assertEquals(finished, SQLSchema.conversion(connection, SQLSchema.PLAYERS_CONVERSION));
+
+            // Conversions are kept apart by name.
+            assertEquals(new SQLSchema.Conversion("", false), SQLSchema.conversion(connection, "other"));
+        }
+    }
+
+    @Test
+    void testUuidBytes() {
+        final UUID uuid = UUID.fromString("0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0");
+        assertEquals("0f1e2d3c4b5a69788796a5b4c3d2e1f0", HexFormat.of().formatHex(SQLSchema.toBytes(uuid)));
+    }
+}
@@ -0,0 +1,189 @@
+package net.earthmc.queue.storage;
+
+import net.earthmc.queue.config.QueueConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SQLStorageTests {
+    private final List<ConnectionPool> pools = new ArrayList<>();
+    private final List<SQLStorage> storages = new ArrayList<>();
+    private String url;
+
+    @BeforeEach
+    void createDatabase() throws SQLException {
+        this.url = SQLSchemaTests.database();
+    }
+
+    @AfterEach
+    void close() {
+        storages.forEach(SQLStorage::disable);
+        pools.forEach(ConnectionPool::close);
+    }
+
+    /**
+     * Opens a storage on a pool of its own, like a proxy that has just started.
+     */
+    private SQLStorage open(int statementCacheSize) throws SQLException {
+        final ConnectionPool pool = SQLSchemaTests.pool(url, statementCacheSize);
+        pools.add(pool);
+
+        final SQLStorage storage = new SQLStorage(NOPLogger.NOP_LOGGER, new QueueConfig.StorageExecutorSettings(1, 16, Duration.ofSeconds(5)), new QueueConfig.CacheSettings(1000, Duration.ofMinutes(30)));
+        storages.add(storage);
+        storage.open(pool);
+        return storage;
+    }
+
+    private void execute(String sql, Object... parameters) throws SQLException {
+        try (PooledConnection connection = pools.getFirst().borrow(); PreparedStatement ps = connection.connection().prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++)
+                ps.setObject(i + 1, parameters[i]);
+
+            ps.execute();
+        }
+    }
+
+    private int count(String table) throws SQLException {
+        try (PooledConnection connection = pools.getFirst().borrow(); Statement statement = connection.connection().createStatement(); ResultSet resultSet = statement.executeQuery("select count(*) from " + table)) {
+            assertTrue(resultSet.next());
+            return resultSet.getInt(1);
+        }
+    }
+
+    @Test
+    void testSaveAndLoad() throws SQLException {
+        final SQLStorage storage = open(16);
+        final PlayerData towny = new PlayerData(UUID.randomUUID(), "towny", false);
+        final PlayerData none = new PlayerData(UUID.randomUUID(), null, true);
+
+        storage.saveData(List.of(towny, none));
+        assertEquals(towny, storage.loadData(towny.uuid()));
+        assertEquals(none, storage.loadData(none.uuid()));
+        assertNull(storage.loadData(UUID.randomUUID()));
+
+        // Saving again replaces the player's data.
+        final PlayerData nations = new PlayerData(towny.uuid(), "nations", true);
+        storage.saveData(List.of(nations));
+        assertEquals(nations, storage.loadData(towny.uuid()));
+        assertEquals(2, count("queue_player_data"));
+        assertEquals(2, count("queue_servers"));
+
+        // Players are stored by their binary uuid.
+        try (PooledConnection connection = pools.getFirst().borrow(); PreparedStatement ps = connection.connection().prepareStatement("select autoQueueDisabled from queue_player_data where uuid = ?")) {
+            ps.setBytes(1, SQLSchema.toBytes(towny.uuid()));
+
+            try (ResultSet resultSet = ps.executeQuery()) {
+                assertTrue(resultSet.next());
+                assertTrue(resultSet.getBoolean(1));
+            }
+        }
+
+        // Server ids that another proxy added are found as well.
+        assertEquals(nations, open(16).loadData(towny.uuid()));
+    }
+
+    @Test
+    void testSaveWithSmallStatementCache() throws SQLException {
+        // Resolving the ids of new servers prepares statements of its own, which must not evict the upsert.
+        for (int size : new int[]{0, 1, 2}) {
+            final SQLStorage storage = open(size);
+            final List<PlayerData> players = new ArrayList<>();
+            for (int i = 0; i < 3; i++)
+                players.add(new PlayerData(UUID.randomUUID(), "server-" + size + "-" + i, false));
+
+            storage.saveData(players);
+
+            for (PlayerData player : players)
+                assertEquals(player, storage.loadData(player.uuid()));
+        }
+    }
+
+    @Test
+    void testLegacyPlayersAreLoaded() throws SQLException {
+        final SQLStorage storage = open(16);
+        final UUID legacy = UUID.randomUUID();
+        execute("insert into queue_players (uuid, lastJoinedServer, autoQueueDisabled) values (?, ?, ?)", legacy.toString(), "towny", true);
+
+        // Not copied over yet, so it is loaded from the old table.
+        assertEquals(new PlayerData(legacy, "towny", true), storage.loadData(legacy));
+        assertNull(storage.loadData(UUID.randomUUID()));
+
+        // Once saved, the new table takes precedence.
+        storage.saveData(List.of(new PlayerData(legacy, "nations", false)));
+        assertEquals(new PlayerData(legacy, "nations", false), storage.loadData(legacy));
+    }
+
+    @Test
+    void testConversionKeepsNewerSaves() throws SQLException {
+        final SQLStorage storage = open(16);
+        final UUID saved = UUID.randomUUID();
+        final UUID unsaved = UUID.randomUUID();
+        execute("insert into queue_players (uuid, lastJoinedServer, autoQueueDisabled) values (?, ?, ?)", saved.toString(), "towny", false);
+        execute("insert into queue_players (uuid, lastJoinedServer, autoQueueDisabled) values (?, ?, ?)", unsaved.toString(), "towny", true);
+        execute("insert into queue_players (uuid, lastJoinedServer, autoQueueDisabled) values (?, ?, ?)", "not a uuid", "towny", true);
+
+        // Saved after the conversion started, but before the player was copied.
+        storage.saveData(List.of(new PlayerData(saved, "nations", true)));
+
+        assertTrue(storage.convertBatch());
+        assertTrue(conversion().finished());
+
+        // Both players are in the new table now, without the old table.
+        execute("delete from queue_players");
+        assertEquals(new PlayerData(saved, "nations", true), storage.loadData(saved));
+        assertEquals(new PlayerData(unsaved, "towny", true), storage.loadData(unsaved));
+        assertEquals(2, count("queue_player_data"));
+
+        // A restarted proxy knows the conversion has finished, and no longer looks at the old table.
+        final UUID late = UUID.randomUUID();
+        execute("insert into queue_players (uuid, lastJoinedServer, autoQueueDisabled) values (?, ?, ?)", late.toString(), "towny", true);
+        assertNull(open(16).loadData(late));
+    }
+
+    @Test
+    void testConversionResumesAfterRestart() throws SQLException {
+        final SQLStorage storage = open(16);
+        final int players = SQLStorage.CONVERSION_BATCH_SIZE + 100;
+        for (int i = 0; i < players; i++)
+            execute("insert into queue_players (uuid, lastJoinedServer, autoQueueDisabled) values (?, ?, ?)", UUID.randomUUID().toString(), "towny", false);
+
+        assertFalse(storage.convertBatch());
+        assertEquals(SQLStorage.CONVERSION_BATCH_SIZE, count("queue_player_data"));
+        assertFalse(conversion().finished());
+
+        // Removed so that copying them again would show.
+        execute("delete from queue_player_data");
+
+        final SQLStorage restarted = open(16);
+        assertTrue(restarted.convertBatch());
+        assertEquals(players - SQLStorage.CONVERSION_BATCH_SIZE, count("queue_player_data"));
+        assertTrue(conversion().finished());
+    }
+
+    @Test
+    void testFailedMigrationFailsToOpen() {
+        // Without get_lock the migration can't start.
+        this.url = "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+
+        final SQLException exception = assertThrows(SQLException.class, () -> open(16));
+        assertEquals("Failed to migrate the database", exception.getMessage());
+    }
+
+    private SQLSchema.Conversion conversion() throws SQLException {
+        try (PooledConnection connection = pools.getFirst().borrow()) {
+            return SQLSchema.conversion(connection.connection(), SQLSchema.PLAYERS_CONVERSION);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package net.earthmc.queue.storage;
+
+import net.earthmc.queue.config.QueueConfig;
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StorageExecutorTests {
+    @Test
+    void testFullQueueRejects() throws InterruptedException {
+        final StorageExecutor executor = new StorageExecutor("test", new QueueConfig.StorageExecutorSettings(1, 1, Duration.ofSeconds(5)), NOPLogger.NOP_LOGGER, null);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final CompletableFuture<Void> running = executor.run(() -> {
+            started.countDown();
+            release.await();
+        });
+        started.await();
+
+        final CompletableFuture<Void> queued = executor.run(() -> {});
+        assertEquals(1, executor.queued());
+
+        final CompletableFuture<Void> rejected = executor.run(() -> {});
+        final CompletionException exception = assertThrows(CompletionException.class, rejected::join);
+        assertInstanceOf(RejectedExecutionException.class, exception.getCause());
+
+        release.countDown();
+        running.join();
+        queued.join();
+        executor.shutdown();
+    }
+
+    @Test
+    void testTimedOutOperationsAreSkipped() throws InterruptedException {
+        final StorageExecutor executor = new StorageExecutor("test", new QueueConfig.StorageExecutorSettings(1, 4, Duration.ofMillis(50)), NOPLogger.NOP_LOGGER, null);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean ran = new AtomicBoolean();
+
+        final CompletableFuture<Void> blocking = executor.run(release::await);
+        final CompletableFuture<Void> queued = executor.run(() -> ran.set(true));
+
+        final CompletionException exception = assertThrows(CompletionException.class, queued::join);
+        assertInstanceOf(TimeoutException.class, exception.getCause());
+        assertThrows(CompletionException.class, blocking::join);
+
+        release.countDown();
+        executor.shutdown();
+        assertFalse(ran.get());
+    }
+
+    @Test
+    void testExceptionsCompleteTheFuture() {
+        final StorageExecutor executor = new StorageExecutor("test", new QueueConfig.StorageExecutorSettings(1, 4, Duration.ofSeconds(5)), NOPLogger.NOP_LOGGER, null);
+
+        final CompletableFuture<Void> future = executor.run(() -> {
+            throw new IllegalStateException("failed");
+        });
+
+        final CompletionException exception = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+        executor.shutdown();
+    }
+}
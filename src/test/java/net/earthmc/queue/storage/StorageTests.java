@@ -0,0 +1,208 @@
+package net.earthmc.queue.storage;
+
+import net.earthmc.queue.Priority;
+import net.earthmc.queue.QueuedPlayer;
+import net.earthmc.queue.config.QueueConfig;
+import net.earthmc.queue.metrics.MetricsRegistry;
+import net.earthmc.queue.metrics.StorageMetrics;
+import net.kyori.adventure.text.Component;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StorageTests {
+    private static QueuedPlayer player() {
+        return new QueuedPlayer(UUID.randomUUID(), "player", new Priority("none", 0, Component.empty()));
+    }
+
+    @Test
+    void testUnchangedPlayersAreNotSaved() {
+        final MemoryStorage storage = new MemoryStorage();
+        final QueuedPlayer player = player();
+
+        player.load(new PlayerData(player.uuid(), "towny", false));
+        player.setLastJoinedServer("towny");
+        storage.savePlayer(player);
+        assertEquals(0, storage.pendingWrites());
+
+        player.setAutoQueueDisabled(true);
+        storage.savePlayer(player);
+        assertEquals(1, storage.pendingWrites());
+
+        storage.flush().join();
+        assertEquals(1, storage.batches.size());
+        assertEquals(new PlayerData(player.uuid(), "towny", true), storage.saved.get(player.uuid()));
+    }
+
+    @Test
+    void testSavesAreCoalesced() {
+        final MemoryStorage storage = new MemoryStorage();
+        final QueuedPlayer first = player();
+        final QueuedPlayer second = player();
+
+        first.setLastJoinedServer("towny");
+        storage.savePlayer(first);
+        first.setLastJoinedServer("nations");
+        storage.savePlayer(first);
+        second.setLastJoinedServer("towny");
+        storage.savePlayer(second);
+        assertEquals(2, storage.pendingWrites());
+
+        storage.flush().join();
+        assertEquals(1, storage.batches.size());
+        assertEquals(2, storage.batches.getFirst());
+        assertEquals("nations", storage.saved.get(first.uuid()).lastJoinedServer());
+        assertEquals(0, storage.pendingWrites());
+
+        // Nothing to write.
+        storage.flush().join();
+        assertEquals(1, storage.batches.size());
+    }
+
+    @Test
+    void testPendingSavesAreLoaded() {
+        final MemoryStorage storage = new MemoryStorage();
+        final QueuedPlayer player = player();
+        player.setLastJoinedServer("towny");
+        storage.savePlayer(player);
+
+        // The player reconnects before their data is written.
+        final QueuedPlayer reconnected = new QueuedPlayer(player.uuid(), "player", new Priority("none", 0, Component.empty()));
+        storage.loadPlayer(reconnected).join();
+        assertEquals("towny", reconnected.getLastJoinedServer().orElse(null));
+        assertTrue(storage.saved.isEmpty());
+
+        // Loaded data is not a change.
+        storage.savePlayer(reconnected);
+        assertEquals(1, storage.pendingWrites());
+        assertFalse(reconnected.markSaved());
+    }
+
+    @Test
+    void testFailedSavesAreRetried() {
+        final MemoryStorage storage = new MemoryStorage();
+        final QueuedPlayer player = player();
+        player.setLastJoinedServer("towny");
+        storage.savePlayer(player);
+
+        storage.failing = true;
+        storage.flush().join();
+        assertTrue(storage.saved.isEmpty());
+        assertEquals(1, storage.pendingWrites());
+
+        storage.failing = false;
+        storage.flush().join();
+        assertEquals("towny", storage.saved.get(player.uuid()).lastJoinedServer());
+        assertEquals(0, storage.pendingWrites());
+    }
+
+    @Test
+    void testLoadsAreCached() {
+        final MemoryStorage storage = new MemoryStorage();
+        final UUID uuid = UUID.randomUUID();
+        storage.saved.put(uuid, new PlayerData(uuid, "towny", true));
+
+        final QueuedPlayer first = new QueuedPlayer(uuid, "player", new Priority("none", 0, Component.empty()));
+        storage.loadPlayer(first).join();
+        final QueuedPlayer second = new QueuedPlayer(uuid, "player", new Priority("none", 0, Component.empty()));
+        storage.loadPlayer(second).join();
+
+        assertEquals(1, storage.loads);
+        assertEquals("towny", second.getLastJoinedServer().orElse(null));
+        assertTrue(second.isAutoQueueDisabled());
+
+        // Players without any data are cached as well.
+        storage.loadPlayer(player()).join();
+        assertEquals(2, storage.loads);
+    }
+
+    @Test
+    void testPrefetchedDataIsLoadedOnce() {
+        final MemoryStorage storage = new MemoryStorage();
+        final UUID uuid = UUID.randomUUID();
+        storage.saved.put(uuid, new PlayerData(uuid, "towny", true));
+
+        // Loading right after the prefetch waits for it instead of loading again.
+        storage.prefetch(uuid);
+        final QueuedPlayer player = new QueuedPlayer(uuid, "player", new Priority("none", 0, Component.empty()));
+        storage.loadPlayer(player).join();
+
+        assertEquals(1, storage.loads);
+        assertEquals("towny", player.getLastJoinedServer().orElse(null));
+        assertTrue(player.isAutoQueueDisabled());
+
+        // Already cached.
+        storage.prefetch(uuid).join();
+        assertEquals(1, storage.loads);
+    }
+
+    @Test
+    void testPrefetchIsNotACacheRequest() {
+        final StorageMetrics metrics = new StorageMetrics(new MetricsRegistry());
+        final MemoryStorage storage = new MemoryStorage(metrics);
+        final UUID uuid = UUID.randomUUID();
+
+        storage.prefetch(uuid).join();
+        storage.loadPlayer(new QueuedPlayer(uuid, "player", new Priority("none", 0, Component.empty()))).join();
+
+        assertEquals(1, metrics.cacheRequests(true).get() + metrics.cacheRequests(false).get());
+    }
+
+    @Test
+    void testSavesUpdateTheCache() {
+        final MemoryStorage storage = new MemoryStorage();
+        final QueuedPlayer player = player();
+        storage.loadPlayer(player).join();
+
+        player.setLastJoinedServer("nations");
+        storage.savePlayer(player);
+        storage.flush().join();
+
+        final QueuedPlayer reconnected = new QueuedPlayer(player.uuid(), "player", new Priority("none", 0, Component.empty()));
+        storage.loadPlayer(reconnected).join();
+        assertEquals(1, storage.loads);
+        assertEquals("nations", reconnected.getLastJoinedServer().orElse(null));
+    }
+
+    private static class MemoryStorage extends Storage {
+        private final Map<UUID, PlayerData> saved = new HashMap<>();
+        private final List<Integer> batches = new ArrayList<>();
+        private volatile boolean failing = false;
+        private volatile int loads = 0;
+
+        MemoryStorage() {
+            this(null);
+        }
+
+        MemoryStorage(@Nullable StorageMetrics metrics) {
+            super("memory", NOPLogger.NOP_LOGGER, metrics, new QueueConfig.StorageExecutorSettings(1, 16, Duration.ofSeconds(5)), new QueueConfig.CacheSettings(1000, Duration.ofMinutes(30)));
+        }
+
+        @Override
+        protected @Nullable PlayerData loadData(@NotNull UUID uuid) {
+            loads++;
+            return saved.get(uuid);
+        }
+
+        @Override
+        protected void saveData(@NotNull Collection<PlayerData> data) throws Exception {
+            if (failing)
+                throw new Exception("failing");
+
+            batches.add(data.size());
+            for (PlayerData player : data)
+                saved.put(player.uuid(), player);
+        }
+    }
+}